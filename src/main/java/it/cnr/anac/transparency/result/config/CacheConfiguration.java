@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.config;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.cnr.anac.transparency.result.repositories.ResultDao;
+import it.cnr.anac.transparency.result.v1.dto.CompanyHistoryDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Slice;
+
+/**
+ * Configurazione delle cache applicative con Caffeine: ogni cache ha un peso massimo,
+ * misurato in righe, oltre il quale i valori sono rimossi con la politica W-TinyLFU,
+ * e una scadenza dall'inserimento e opzionalmente dall'ultimo accesso.
+ * I calcoli concorrenti dello stesso valore mancante sono unificati da {@link CoalescingCache}.
+ * Le cache con refreshAfter ricalcolano in background i valori meno recenti
+ * con {@link RefreshAheadCache}.
+ */
+@Slf4j
+@Configuration(proxyBeanMethods = false)
+@EnableConfigurationProperties(CachingProperties.class)
+public class CacheConfiguration {
+
+    private static final List<String> CACHE_NAMES = List.of(
+            ResultDao.RESULTS_CACHE_NAME, ResultDao.RESULTS_COUNT_CACHE_NAME,
+            ResultDao.RESULTS_GROUPED_BY_CACHE_NAME, ResultDao.RESULTS_HISTORY_CACHE_NAME,
+            ResponseCacheFilter.RESPONSES_CACHE_NAME);
+
+    private static final int REFRESH_THREADS = 2;
+    private static final int REFRESH_QUEUE_SIZE = 100;
+    private static final AtomicInteger REFRESH_THREAD_IDS = new AtomicInteger();
+
+    @Bean
+    public CacheEvictions cacheEvictions() {
+        return new CacheEvictions();
+    }
+
+    @Bean
+    public CacheManager cacheManager(CachingProperties properties, CacheEvictions cacheEvictions,
+                                     MeterRegistry meterRegistry) {
+        // Pochi thread: i ricalcoli sono query aggregate sul database e non devono
+        // sottrarre connessioni alle richieste
+        ExecutorService refreshExecutor = new ThreadPoolExecutor(1, REFRESH_THREADS,
+                60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(REFRESH_QUEUE_SIZE),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "cache-refresh-" + REFRESH_THREAD_IDS.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache adaptCaffeineCache(String name,
+                    com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                Cache adapted = new CoalescingCache(super.adaptCaffeineCache(name, cache),
+                        properties.getCoalescingTimeout(), cacheEvictions, meterRegistry);
+                Duration refreshAfter = properties.spec(name).getRefreshAfter();
+                return refreshAfter == null ? adapted
+                        : new RefreshAheadCache(adapted, refreshAfter, refreshExecutor, meterRegistry);
+            }
+        };
+        // Utilizzata per le cache create dinamicamente
+        cacheManager.setCaffeine(caffeine(properties.getDefaults()));
+        CACHE_NAMES.forEach(cacheName ->
+                cacheManager.registerCustomCache(cacheName, caffeine(properties.spec(cacheName)).build()));
+        properties.getCaches().forEach((cacheName, spec) -> {
+            if (!CACHE_NAMES.contains(cacheName)) {
+                cacheManager.registerCustomCache(cacheName, caffeine(spec).build());
+            }
+        });
+        log.info("Configurate le cache {}", cacheManager.getCacheNames());
+        return cacheManager;
+    }
+
+    private static Caffeine<Object, Object> caffeine(CachingProperties.CacheSpec spec) {
+        Caffeine<Object, Object> caffeine = Caffeine.newBuilder()
+                .maximumWeight(spec.getMaximumWeight())
+                .weigher(CacheConfiguration::rows)
+                .recordStats();
+        if (spec.getExpireAfterWrite() != null) {
+            caffeine.expireAfterWrite(spec.getExpireAfterWrite());
+        }
+        if (spec.getExpireAfterAccess() != null) {
+            caffeine.expireAfterAccess(spec.getExpireAfterAccess());
+        }
+        return caffeine;
+    }
+
+    /**
+     * @return il numero di righe contenute nel valore, almeno 1. Per le risposte serializzate
+     *     il peso è la dimensione in KiB, per lo storico di un codice IPA il numero di regole.
+     */
+    static int rows(Object key, Object value) {
+        if (value instanceof RefreshAheadCache.Entry entry) {
+            value = entry.value();
+        }
+        int rows = 1;
+        if (value instanceof CachedResponse response) {
+            rows = response.weight();
+        } else if (value instanceof CompanyHistoryDto history) {
+            rows = history.getStatuses().size();
+        } else if (value instanceof Slice<?> slice) {
+            rows = slice.getNumberOfElements();
+        } else if (value instanceof Collection<?> collection) {
+            rows = collection.size();
+        } else if (value instanceof Map<?, ?> map) {
+            rows = map.size();
+        }
+        return Math.max(1, rows);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import it.cnr.anac.transparency.result.services.WorkflowScopedKey;
+
+/**
+ * Contatori delle eliminazioni dalle cache, condivisi tra le cache e chi le svuota.
+ * Un valore calcolato mentre è cambiato il contatore di uno dei flussi da cui dipende può
+ * riflettere dati superati e non va memorizzato in cache: le eliminazioni non vedono le
+ * chiavi il cui calcolo è ancora in corso.
+ * Ogni flusso ha il proprio contatore, quindi le eliminazioni di un flusso durante il suo
+ * caricamento non impediscono di memorizzare i valori degli altri flussi. I valori che
+ * dipendono da tutti i flussi (chiavi senza flussi o non {@link WorkflowScopedKey}) sono
+ * invece interessati dalle eliminazioni di qualunque flusso.
+ */
+public class CacheEvictions {
+
+    // Svuotamenti completi delle cache
+    private final AtomicLong all = new AtomicLong();
+
+    // Eliminazioni di qualunque flusso, per i valori che dipendono da tutti i flussi
+    private final AtomicLong any = new AtomicLong();
+
+    private final Map<String, AtomicLong> workflows = new ConcurrentHashMap<>();
+
+    /**
+     * @return la generazione delle eliminazioni che riguardano il valore con la chiave indicata,
+     *     cambia a ogni eliminazione che potrebbe interessare il valore.
+     */
+    public long current(Object key) {
+        long generation = all.get();
+        if (key instanceof WorkflowScopedKey scopedKey && !scopedKey.workflowIds().isEmpty()) {
+            for (String workflowId : scopedKey.workflowIds()) {
+                AtomicLong counter = workflows.get(workflowId);
+                generation += counter != null ? counter.get() : 0;
+            }
+            return generation;
+        }
+        return generation + any.get();
+    }
+
+    /**
+     * Da chiamare prima di svuotare le cache, così i calcoli in corso non reinseriscono i valori.
+     */
+    public void evictedAll() {
+        all.incrementAndGet();
+    }
+
+    /**
+     * Da chiamare prima di eliminare i valori che dipendono dal flusso.
+     */
+    public void evictedWorkflow(String workflowId) {
+        workflows.computeIfAbsent(workflowId, id -> new AtomicLong()).incrementAndGet();
+        any.incrementAndGet();
+    }
+
+    /**
+     * Da chiamare prima di eliminare il valore con la chiave indicata.
+     */
+    public void evicted(Object key) {
+        if (key instanceof WorkflowScopedKey scopedKey && !scopedKey.workflowIds().isEmpty()) {
+            scopedKey.workflowIds().forEach(this::evictedWorkflow);
+        } else {
+            any.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Risposta di un'API già serializzata, conservata nella cache delle risposte.
+ *
+ * @param contentType content type della risposta
+ * @param body contenuto della risposta
+ * @param gzipBody contenuto compresso con gzip, null se la risposta è troppo piccola
+ *     per essere compressa
+ */
+public record CachedResponse(String contentType, byte[] body, byte[] gzipBody) {
+
+    public static CachedResponse of(String contentType, byte[] body, int gzipMinSize) {
+        return new CachedResponse(contentType, body, body.length >= gzipMinSize ? gzip(body) : null);
+    }
+
+    /**
+     * @return il peso in cache della risposta, in KiB.
+     */
+    public int weight() {
+        long bytes = (long) body.length + (gzipBody != null ? gzipBody.length : 0);
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, bytes / 1024));
+    }
+
+    private static byte[] gzip(byte[] body) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
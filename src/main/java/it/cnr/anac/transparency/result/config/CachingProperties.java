@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.config;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Limiti delle cache applicative, configurabili per nome della cache.
+ * Il peso di un valore in cache è il numero di righe che contiene (elementi della pagina
+ * o della lista), 1 per gli altri valori.
+ */
+@Getter
+@Setter
+@ConfigurationProperties("caching")
+public class CachingProperties {
+
+    /**
+     * Limiti delle cache senza una configurazione specifica.
+     */
+    private CacheSpec defaults = new CacheSpec();
+
+    /**
+     * Limiti per nome della cache.
+     */
+    private Map<String, CacheSpec> caches = new HashMap<>();
+
+    /**
+     * Attesa massima del calcolo in corso di un valore mancante da parte degli altri chiamanti
+     * con la stessa chiave, scaduta la quale il valore è calcolato di nuovo.
+     */
+    private Duration coalescingTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Cache delle risposte serializzate delle API.
+     */
+    private Responses responses = new Responses();
+
+    public CacheSpec spec(String cacheName) {
+        return caches.getOrDefault(cacheName, defaults);
+    }
+
+    @Getter
+    @Setter
+    public static class CacheSpec {
+
+        /**
+         * Peso massimo della cache, in numero di righe memorizzate.
+         */
+        private long maximumWeight = 100_000;
+
+        /**
+         * Durata massima di un valore in cache dal suo inserimento.
+         */
+        private Duration expireAfterWrite = Duration.ofHours(1);
+
+        /**
+         * Durata massima di un valore in cache dall'ultimo accesso, se non impostata
+         * vale solo expireAfterWrite.
+         */
+        private Duration expireAfterAccess;
+
+        /**
+         * Età oltre la quale un valore è ricalcolato in background continuando a restituire
+         * quello presente, se non impostata i valori sono ricalcolati solo dopo la scadenza.
+         */
+        private Duration refreshAfter;
+    }
+
+    @Getter
+    @Setter
+    public static class Responses {
+
+        private boolean enabled = true;
+
+        /**
+         * Dimensione minima in byte delle risposte di cui conservare anche la versione gzip.
+         */
+        private int gzipMinSize = 2048;
+
+        /**
+         * Archivio su disco delle risposte dei flussi completati.
+         */
+        private Disk disk = new Disk();
+    }
+
+    @Getter
+    @Setter
+    public static class Disk {
+
+        private boolean enabled = true;
+
+        private Path directory = Path.of(System.getProperty("java.io.tmpdir"), "result-service", "responses");
+
+        /**
+         * Dimensione di ciascun file di segmento, al massimo 2GB.
+         */
+        private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+        /**
+         * Numero massimo di segmenti, superato il quale è eliminato il segmento più vecchio.
+         */
+        private int maxSegments = 16;
+    }
+}
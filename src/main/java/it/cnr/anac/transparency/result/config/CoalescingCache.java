@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.config;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+
+/**
+ * Cache che unifica i calcoli concorrenti dello stesso valore mancante (single-flight): il
+ * primo chiamante esegue il calcolo e gli altri, con la stessa chiave, ne attendono il
+ * risultato invece di eseguire di nuovo la stessa query.
+ * Se l'attesa supera il timeout il chiamante esegue il calcolo in proprio.
+ * Si applica alle letture con calcolo del valore, cioè ai metodi @Cacheable(sync = true)
+ * e a {@link Cache#get(Object, Callable)}.
+ * Il valore calcolato non è memorizzato se durante il calcolo ci sono state eliminazioni
+ * dalle cache che lo riguardano, cioè dei flussi da cui dipende secondo {@link CacheEvictions},
+ * che altrimenti sarebbero sovrascritte con dati superati.
+ * Le metriche cache.coalesced, cache.coalescing.timeouts e cache.coalescing.discarded, con il
+ * tag cache, riportano le esecuzioni evitate, le attese scadute e i valori non memorizzati.
+ */
+@Slf4j
+public class CoalescingCache implements Cache {
+
+    private final Cache delegate;
+    private final long timeoutMillis;
+    private final CacheEvictions evictions;
+    private final ConcurrentHashMap<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter coalesced;
+    private final Counter timeouts;
+    private final Counter discarded;
+
+    public CoalescingCache(Cache delegate, Duration timeout, MeterRegistry meterRegistry) {
+        this(delegate, timeout, new CacheEvictions(), meterRegistry);
+    }
+
+    public CoalescingCache(Cache delegate, Duration timeout, CacheEvictions evictions,
+                           MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.timeoutMillis = timeout.toMillis();
+        this.evictions = evictions;
+        this.coalesced = Counter.builder("cache.coalesced")
+                .description("Calcoli dei valori mancanti evitati attendendo un calcolo già in corso")
+                .tag("cache", delegate.getName())
+                .register(meterRegistry);
+        this.timeouts = Counter.builder("cache.coalescing.timeouts")
+                .description("Attese di un calcolo in corso scadute")
+                .tag("cache", delegate.getName())
+                .register(meterRegistry);
+        this.discarded = Counter.builder("cache.coalescing.discarded")
+                .description("Valori calcolati non memorizzati per eliminazioni avvenute durante il calcolo")
+                .tag("cache", delegate.getName())
+                .register(meterRegistry);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper cached = delegate.get(key);
+        if (cached != null) {
+            return (T) cached.get();
+        }
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            return (T) await(key, running, valueLoader);
+        }
+        try {
+            // Il valore potrebbe essere stato inserito da un calcolo appena terminato
+            cached = delegate.get(key);
+            T value = cached != null ? (T) cached.get() : load(key, valueLoader);
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private <T> Object await(Object key, CompletableFuture<Object> running, Callable<T> valueLoader) {
+        try {
+            Object value = running.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            coalesced.increment();
+            return value;
+        } catch (TimeoutException e) {
+            timeouts.increment();
+            log.debug("Scaduta l'attesa del calcolo in corso per la chiave {} della cache {}", key, getName());
+            return load(key, valueLoader);
+        } catch (ExecutionException e) {
+            // Il calcolo in corso è fallito, l'errore è lo stesso per tutti i chiamanti
+            throw e.getCause() instanceof RuntimeException runtimeException
+                    ? runtimeException : new ValueRetrievalException(key, valueLoader, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+    }
+
+    private <T> T load(Object key, Callable<T> valueLoader) {
+        long generation = evictions.current(key);
+        T value;
+        try (SharedReads.Scope scope = SharedReads.open()) {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        if (evictions.current(key) == generation) {
+            delegate.put(key, value);
+            // Un'eliminazione iniziata dopo il controllo potrebbe non aver visto il valore
+            if (evictions.current(key) == generation) {
+                return value;
+            }
+            delegate.evict(key);
+        }
+        discarded.increment();
+        log.debug("Non memorizzato il valore della chiave {} della cache {}, eliminazioni durante il calcolo",
+                key, getName());
+        return value;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return delegate.get(key, type);
+    }
+
+    @Override
+    public CompletableFuture<?> retrieve(Object key) {
+        return delegate.retrieve(key);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+        return delegate.retrieve(key, valueLoader);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return delegate.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        evictions.evicted(key);
+        delegate.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        evictions.evicted(key);
+        return delegate.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        evictions.evictedAll();
+        delegate.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        evictions.evictedAll();
+        return delegate.invalidate();
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.config;
+
+import java.util.Set;
+
+import it.cnr.anac.transparency.result.repositories.ResultDao;
+import it.cnr.anac.transparency.result.services.DataVersionService;
+import it.cnr.anac.transparency.result.v1.ApiRoutes;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Registra la gestione delle richieste condizionali sulle API di ricerca dei risultati e
+ * dei flussi, eseguita prima della cache delle risposte.
+ */
+@Configuration(proxyBeanMethods = false)
+public class ConditionalRequestConfiguration {
+
+    private static final String RESULTS_PATH = ApiRoutes.BASE_PATH + "/results";
+    private static final String WORKFLOWS_PATH = ApiRoutes.BASE_PATH + "/workflows";
+
+    @Bean
+    public RequestWorkflowResolver requestWorkflowResolver(ResultDao resultDao) {
+        return new RequestWorkflowResolver(resultDao, Set.of(
+                RESULTS_PATH + ApiRoutes.CODICE_IPA,
+                RESULTS_PATH + ApiRoutes.CODICE_IPA_COUNT));
+    }
+
+    @Bean
+    public FilterRegistrationBean<ConditionalRequestFilter> conditionalRequestFilter(
+            DataVersionService dataVersionService, RequestWorkflowResolver requestWorkflowResolver) {
+        FilterRegistrationBean<ConditionalRequestFilter> registration = new FilterRegistrationBean<>(
+                new ConditionalRequestFilter(dataVersionService, requestWorkflowResolver));
+        registration.addUrlPatterns(
+                RESULTS_PATH + ApiRoutes.LIST,
+                RESULTS_PATH + ApiRoutes.CODICE_IPA,
+                RESULTS_PATH + ApiRoutes.CODICE_IPA_WORKFLOWID,
+                RESULTS_PATH + ApiRoutes.CODICE_IPA_COUNT,
+                RESULTS_PATH + "/countAndGroupByWorkflowIdAndStatus",
+                WORKFLOWS_PATH + ApiRoutes.LIST,
+                WORKFLOWS_PATH + ApiRoutes.LIST + "/listConductorLike");
+        registration.setOrder(Ordered.LOWEST_PRECEDENCE - 20);
+        return registration;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.config;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.SortedSet;
+
+import com.google.common.hash.Hashing;
+import it.cnr.anac.transparency.result.services.DataVersionService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Gestione delle richieste condizionali (If-None-Match e If-Modified-Since) sulle API di
+ * ricerca dei risultati e dei flussi. Il validatore è calcolato dalla sola tabella dei flussi,
+ * quindi la risposta 304 è restituita senza eseguire alcuna query sui risultati.
+ * L'ETag dipende dalla richiesta (percorso e parametri) e dalla versione dei dati dei flussi
+ * individuati dal {@link RequestWorkflowResolver}.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ConditionalRequestFilter extends OncePerRequestFilter {
+
+    private final DataVersionService dataVersionService;
+    private final RequestWorkflowResolver requestWorkflowResolver;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!"GET".equals(request.getMethod())) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        Optional<SortedSet<String>> workflowIds = requestWorkflowResolver.workflowIds(request);
+        if (workflowIds.isEmpty()) {
+            // Nessun flusso per il codiceIpa, la risposta è un errore
+            filterChain.doFilter(request, response);
+            return;
+        }
+        DataVersionService.DataVersion version = dataVersionService.version(workflowIds.get());
+        long lastModified = version.lastModifiedMillis();
+        String etag = "\"" + Hashing.murmur3_128().newHasher()
+                .putString(ResponseCacheFilter.key(request).key().toString(), StandardCharsets.UTF_8)
+                .putString(String.join(",", workflowIds.get()), StandardCharsets.UTF_8)
+                .putString(version.stamp(), StandardCharsets.UTF_8)
+                .hash() + "\"";
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            log.debug("Risposta non modificata per {} {}", request.getRequestURI(), etag);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.config;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Archivio su disco delle risposte serializzate, che sopravvive ai riavvii dell'applicazione.
+ * Le risposte sono scritte in coda a file di segmento di dimensione fissa mappati in memoria,
+ * un indice in memoria associa a ogni chiave la posizione dell'ultima risposta scritta ed è
+ * ricostruito all'avvio leggendo i segmenti. Ogni record contiene il CRC32 del contenuto,
+ * i record non validi (per esempio scritti solo in parte) sono ignorati.
+ * Superato il numero massimo di segmenti viene eliminato il segmento più vecchio.
+ * A ogni risposta è associata una versione, una risposta è restituita solo se la versione
+ * richiesta coincide con quella memorizzata.
+ */
+@Slf4j
+public class DiskResponseStore implements Closeable {
+
+    private static final int MAGIC = 0x52455350;
+    // magic, lunghezza del contenuto e CRC32 del contenuto
+    private static final int HEADER_SIZE = Integer.BYTES * 2 + Long.BYTES;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+
+    private static final class Segment {
+        private final long id;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int position;
+
+        private Segment(long id, Path path, int size) throws IOException {
+            this.id = id;
+            this.path = path;
+            this.channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), size));
+        }
+    }
+
+    private record Location(Segment segment, int offset) {
+    }
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int maxSegments;
+
+    // Segmenti dal più vecchio al più recente, l'ultimo è quello in scrittura
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+
+    public DiskResponseStore(Path directory, int segmentSize, int maxSegments) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = Math.max(1, maxSegments);
+        Files.createDirectories(directory);
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(directory)) {
+            paths = files
+                    .filter(path -> segmentId(path) >= 0)
+                    .sorted(Comparator.comparingLong(DiskResponseStore::segmentId))
+                    .toList();
+        }
+        for (Path path : paths) {
+            Segment segment = new Segment(segmentId(path), path, segmentSize);
+            segments.addLast(segment);
+            load(segment);
+        }
+        while (segments.size() > this.maxSegments) {
+            dropOldest();
+        }
+        if (segments.isEmpty()) {
+            roll();
+        }
+        log.info("Archivio delle risposte in {}: {} segmenti, {} risposte", directory, segments.size(), index.size());
+    }
+
+    /**
+     * @return la risposta memorizzata per la chiave, se presente, integra e con la versione indicata.
+     */
+    public Optional<CachedResponse> get(String key, String version) {
+        Location location = index.get(key);
+        if (location == null) {
+            return Optional.empty();
+        }
+        byte[] payload = read(location.segment().buffer, location.offset());
+        if (payload == null) {
+            log.warn("Risposta non valida nel segmento {} alla posizione {}", location.segment().path, location.offset());
+            index.remove(key, location);
+            return Optional.empty();
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        if (!key.equals(readString(buffer)) || !version.equals(readString(buffer))) {
+            index.remove(key, location);
+            return Optional.empty();
+        }
+        String contentType = readString(buffer);
+        byte[] body = readBytes(buffer);
+        byte[] gzipBody = readBytes(buffer);
+        return Optional.of(new CachedResponse(contentType.isEmpty() ? null : contentType, body, gzipBody));
+    }
+
+    /**
+     * Memorizza la risposta, sostituendo quella eventualmente presente con la stessa chiave.
+     *
+     * @return false se la risposta è più grande di un segmento e non è stata memorizzata.
+     */
+    public synchronized boolean put(String key, String version, CachedResponse response) throws IOException {
+        byte[] payload = encode(key, version, response);
+        int size = HEADER_SIZE + payload.length;
+        if (size > segmentSize) {
+            return false;
+        }
+        Segment segment = segments.getLast();
+        if (segment.position + size > segment.buffer.capacity()) {
+            segment = roll();
+        }
+        int offset = segment.position;
+        ByteBuffer buffer = segment.buffer.duplicate();
+        buffer.position(offset);
+        buffer.putInt(MAGIC).putInt(payload.length).putLong(crc(payload)).put(payload);
+        segment.position += size;
+        index.put(key, new Location(segment, offset));
+        return true;
+    }
+
+    /**
+     * @return il numero di risposte presenti nell'indice.
+     */
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments) {
+            segment.buffer.force();
+            segment.channel.close();
+        }
+        segments.clear();
+        index.clear();
+    }
+
+    /**
+     * Ricostruisce l'indice dai record del segmento, fino al primo record non valido.
+     */
+    private void load(Segment segment) {
+        int position = 0;
+        byte[] payload;
+        while ((payload = read(segment.buffer, position)) != null) {
+            index.put(readString(ByteBuffer.wrap(payload)), new Location(segment, position));
+            position += HEADER_SIZE + payload.length;
+        }
+        segment.position = position;
+    }
+
+    private Segment roll() throws IOException {
+        long id = segments.isEmpty() ? 0 : segments.getLast().id + 1;
+        Segment segment = new Segment(id, directory.resolve(SEGMENT_PREFIX + id + SEGMENT_SUFFIX), segmentSize);
+        segments.addLast(segment);
+        while (segments.size() > maxSegments) {
+            dropOldest();
+        }
+        return segment;
+    }
+
+    private void dropOldest() throws IOException {
+        Segment oldest = segments.removeFirst();
+        index.values().removeIf(location -> location.segment() == oldest);
+        oldest.channel.close();
+        Files.deleteIfExists(oldest.path);
+        log.debug("Eliminato il segmento {} dell'archivio delle risposte", oldest.path);
+    }
+
+    /**
+     * @return il contenuto del record alla posizione indicata, null se il record non esiste
+     *     o non è integro.
+     */
+    private static byte[] read(MappedByteBuffer segmentBuffer, int offset) {
+        ByteBuffer buffer = segmentBuffer.duplicate();
+        if (offset + HEADER_SIZE > buffer.capacity()) {
+            return null;
+        }
+        buffer.position(offset);
+        if (buffer.getInt() != MAGIC) {
+            return null;
+        }
+        int length = buffer.getInt();
+        long crc = buffer.getLong();
+        if (length <= 0 || length > buffer.remaining()) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        buffer.get(payload);
+        return crc(payload) == crc ? payload : null;
+    }
+
+    private static byte[] encode(String key, String version, CachedResponse response) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        byte[] versionBytes = version.getBytes(StandardCharsets.UTF_8);
+        byte[] contentType = response.contentType() != null
+                ? response.contentType().getBytes(StandardCharsets.UTF_8) : new byte[0];
+        int gzipLength = response.gzipBody() != null ? response.gzipBody().length : 0;
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES * 5 + keyBytes.length + versionBytes.length
+                + contentType.length + response.body().length + gzipLength);
+        buffer.putInt(keyBytes.length).put(keyBytes);
+        buffer.putInt(versionBytes.length).put(versionBytes);
+        buffer.putInt(contentType.length).put(contentType);
+        buffer.putInt(response.body().length).put(response.body());
+        if (response.gzipBody() != null) {
+            buffer.putInt(gzipLength).put(response.gzipBody());
+        } else {
+            buffer.putInt(-1);
+        }
+        return buffer.array();
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        return new String(readBytes(buffer), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] readBytes(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static long crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return crc.getValue();
+    }
+
+    private static long segmentId(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
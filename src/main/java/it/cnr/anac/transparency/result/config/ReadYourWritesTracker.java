@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.config;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Tiene traccia delle ultime scritture di ciascun utente autenticato (o di tutti gli utenti
+ * se la richiesta non è autenticata) per garantire la lettura delle proprie scritture
+ * quando le letture sono indirizzate a una replica. Registra anche l'ultima scrittura di
+ * qualunque utente o di un'altra istanza, per le letture condivise ({@link SharedReads}).
+ */
+public class ReadYourWritesTracker {
+
+    private static final String ANONYMOUS = "";
+    private static final int MAX_ENTRIES = 1000;
+
+    private final long windowMillis;
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+    private volatile long lastSharedWrite = 0;
+
+    public ReadYourWritesTracker(Duration window) {
+        this.windowMillis = window.toMillis();
+    }
+
+    public void recordWrite() {
+        long now = System.currentTimeMillis();
+        if (lastWrites.size() > MAX_ENTRIES) {
+            lastWrites.values().removeIf(lastWrite -> now - lastWrite > windowMillis);
+        }
+        lastWrites.put(currentUser(), now);
+        lastSharedWrite = now;
+    }
+
+    /**
+     * Registra una scrittura non associata all'utente corrente, per esempio notificata da
+     * un'altra istanza del servizio.
+     */
+    public void recordSharedWrite() {
+        lastSharedWrite = System.currentTimeMillis();
+    }
+
+    /**
+     * @return true se un qualunque utente ha effettuato una scrittura da meno della finestra
+     *     configurata.
+     */
+    public boolean anyoneRecentlyWrote() {
+        return System.currentTimeMillis() - lastSharedWrite <= windowMillis;
+    }
+
+    /**
+     * @return true se l'utente corrente ha effettuato una scrittura da meno della finestra
+     *     configurata.
+     */
+    public boolean recentlyWrote() {
+        Long lastWrite = lastWrites.get(currentUser());
+        return lastWrite != null && System.currentTimeMillis() - lastWrite <= windowMillis;
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() && authentication.getName() != null
+                ? authentication.getName() : ANONYMOUS;
+    }
+}
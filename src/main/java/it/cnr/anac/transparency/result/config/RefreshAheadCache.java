@@ -0,0 +1,228 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.config;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+/**
+ * Cache con aggiornamento anticipato (stale-while-revalidate): un valore più vecchio di
+ * refreshAfter continua a essere restituito mentre un solo task in background lo ricalcola
+ * e lo sostituisce. La scadenza della cache sottostante (expireAfterWrite) resta il limite
+ * massimo di vita del valore.
+ * Il ricalcolo si applica alle letture con calcolo del valore, cioè ai metodi
+ * @Cacheable(sync = true) e a {@link Cache#get(Object, Callable)}.
+ * Se il valore è eliminato durante il ricalcolo, il nuovo valore è scartato.
+ * La metrica cache.refreshes, con i tag cache e outcome, riporta i ricalcoli eseguiti.
+ */
+@Slf4j
+public class RefreshAheadCache implements Cache {
+
+    /**
+     * Valore memorizzato con l'istante del suo calcolo.
+     */
+    public record Entry(Object value, long writtenAt) {
+
+        // Confronto per identità: la sostituzione del valore scaduto non deve confrontare
+        // il contenuto, che può essere una lista di molte righe
+        @Override
+        public boolean equals(Object other) {
+            return this == other;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    private final Cache delegate;
+    private final ConcurrentMap<Object, Object> entries;
+    private final long refreshAfterMillis;
+    private final Executor executor;
+    private final Set<Object> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final Counter refreshed;
+    private final Counter failed;
+    private final Counter discarded;
+
+    /**
+     * @param delegate cache con valori di tipo {@link Entry}, la cache nativa deve essere
+     *     una cache Caffeine.
+     */
+    public RefreshAheadCache(Cache delegate, Duration refreshAfter, Executor executor,
+            MeterRegistry meterRegistry) {
+        if (!(delegate.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache)) {
+            throw new IllegalArgumentException("La cache " + delegate.getName() + " non è una cache Caffeine");
+        }
+        @SuppressWarnings("unchecked")
+        ConcurrentMap<Object, Object> map = (ConcurrentMap<Object, Object>) nativeCache.asMap();
+        this.delegate = delegate;
+        this.entries = map;
+        this.refreshAfterMillis = refreshAfter.toMillis();
+        this.executor = executor;
+        this.refreshed = refreshes(meterRegistry, "success");
+        this.failed = refreshes(meterRegistry, "failure");
+        this.discarded = refreshes(meterRegistry, "discarded");
+    }
+
+    private Counter refreshes(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("cache.refreshes")
+                .description("Ricalcoli in background dei valori in cache più vecchi della soglia di aggiornamento")
+                .tag("cache", delegate.getName())
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper cached = delegate.get(key);
+        if (cached != null && cached.get() instanceof Entry entry) {
+            if (System.currentTimeMillis() - entry.writtenAt() >= refreshAfterMillis) {
+                refresh(key, entry, valueLoader);
+            }
+            return (T) entry.value();
+        }
+        Entry entry = delegate.get(key, () -> entry(valueLoader.call()));
+        return entry != null ? (T) entry.value() : null;
+    }
+
+    private void refresh(Object key, Entry stale, Callable<?> valueLoader) {
+        if (!refreshing.add(key)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try (SharedReads.Scope scope = SharedReads.open()) {
+                    Entry fresh = entry(valueLoader.call());
+                    // Sostituisce solo il valore scaduto: se nel frattempo è stato eliminato
+                    // i dati sono cambiati e il valore appena calcolato potrebbe non essere valido
+                    if (entries.replace(key, stale, fresh)) {
+                        refreshed.increment();
+                    } else {
+                        discarded.increment();
+                    }
+                } catch (Exception e) {
+                    failed.increment();
+                    log.warn("Aggiornamento del valore con chiave {} della cache {} fallito: {}",
+                            key, getName(), e.getMessage());
+                } finally {
+                    refreshing.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(key);
+            log.debug("Aggiornamento del valore con chiave {} della cache {} rinviato", key, getName());
+        }
+    }
+
+    private static Entry entry(Object value) {
+        return new Entry(value, System.currentTimeMillis());
+    }
+
+    private static ValueWrapper unwrap(ValueWrapper wrapper) {
+        if (wrapper != null && wrapper.get() instanceof Entry entry) {
+            return new SimpleValueWrapper(entry.value());
+        }
+        return wrapper;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return unwrap(delegate.get(key));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException(
+                    "Il valore in cache non è di tipo [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    public CompletableFuture<?> retrieve(Object key) {
+        CompletableFuture<?> future = delegate.retrieve(key);
+        return future == null ? null
+                : future.thenApply(value -> value instanceof Entry entry ? entry.value() : value);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> retrieve(Object key, Supplier<CompletableFuture<T>> valueLoader) {
+        return delegate.retrieve(key, () -> valueLoader.get().thenApply(RefreshAheadCache::entry))
+                .thenApply(entry -> (T) entry.value());
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, entry(value));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return unwrap(delegate.putIfAbsent(key, entry(value)));
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        return delegate.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        return delegate.invalidate();
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.config;
+
+import javax.sql.DataSource;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
+
+/**
+ * Attiva l'instradamento delle transazioni in sola lettura verso la replica del database
+ * quando è impostata la proprietà datasource.replica.url.
+ * Il datasource principale configurato da Spring Boot viene avvolto in un
+ * {@link ReplicaRoutingDataSource}, i due pool sono distinguibili nelle metriche
+ * hikaricp tramite il tag pool (primary e replica).
+ */
+@Slf4j
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "datasource.replica", name = "url")
+@EnableConfigurationProperties(ReplicaDataSourceProperties.class)
+public class ReplicaDataSourceConfiguration {
+
+    @Bean
+    public ReadYourWritesTracker readYourWritesTracker(ReplicaDataSourceProperties properties) {
+        return new ReadYourWritesTracker(properties.getReadYourWritesWindow());
+    }
+
+    /**
+     * Registra le scritture completate con successo, usate per la lettura delle proprie
+     * scritture dal datasource principale.
+     */
+    @Bean
+    public TransactionExecutionListener readYourWritesTransactionListener(
+            ReadYourWritesTracker readYourWritesTracker) {
+        return new TransactionExecutionListener() {
+            @Override
+            public void afterCommit(TransactionExecution transaction, Throwable commitFailure) {
+                if (commitFailure == null && !transaction.isReadOnly()) {
+                    readYourWritesTracker.recordWrite();
+                }
+            }
+        };
+    }
+
+    @Bean
+    public static BeanPostProcessor replicaRoutingDataSourcePostProcessor(
+            ObjectProvider<ReplicaDataSourceProperties> properties,
+            ObjectProvider<ReadYourWritesTracker> readYourWritesTracker,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource primary
+                        && !(bean instanceof ReplicaRoutingDataSource)) {
+                    ReplicaDataSourceProperties replicaProperties = properties.getObject();
+                    log.info("Letture in sola lettura indirizzate alla replica {}", replicaProperties.getUrl());
+                    return new ReplicaRoutingDataSource(primary,
+                            replicaDataSource(replicaProperties, meterRegistry.getIfAvailable()),
+                            readYourWritesTracker.getObject(), replicaProperties.getRetryAfter());
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static HikariDataSource replicaDataSource(ReplicaDataSourceProperties properties,
+            MeterRegistry meterRegistry) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName("replica");
+        config.setJdbcUrl(properties.getUrl());
+        config.setUsername(properties.getUsername());
+        config.setPassword(properties.getPassword());
+        config.setMaximumPoolSize(properties.getMaximumPoolSize());
+        config.setConnectionTimeout(properties.getConnectionTimeout().toMillis());
+        config.setReadOnly(true);
+        // L'applicazione si avvia anche se la replica non è raggiungibile
+        config.setInitializationFailTimeout(-1);
+        if (meterRegistry != null) {
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        }
+        return new HikariDataSource(config);
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.config;
+
+import java.time.Duration;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Configurazione del datasource opzionale in sola lettura (replica del database) utilizzato
+ * per le transazioni in sola lettura. Se l'url non è impostato tutte le query sono eseguite
+ * sul datasource principale.
+ */
+@Getter
+@Setter
+@ConfigurationProperties("datasource.replica")
+public class ReplicaDataSourceProperties {
+
+    private String url;
+    private String username;
+    private String password;
+    private int maximumPoolSize = 50;
+
+    /**
+     * Tempo massimo di attesa di una connessione dalla replica, superato il quale
+     * si utilizza il datasource principale.
+     */
+    private Duration connectionTimeout = Duration.ofSeconds(2);
+
+    /**
+     * Dopo una scrittura, per questo intervallo le letture dello stesso utente sono eseguite
+     * sul datasource principale, per non leggere dati non ancora replicati.
+     */
+    private Duration readYourWritesWindow = Duration.ofSeconds(5);
+
+    /**
+     * Dopo un errore di connessione alla replica, per questo intervallo le letture sono
+     * eseguite sul datasource principale.
+     */
+    private Duration retryAfter = Duration.ofSeconds(30);
+
+}
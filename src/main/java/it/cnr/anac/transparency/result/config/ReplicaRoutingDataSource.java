@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.config;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Datasource che indirizza le transazioni in sola lettura alla replica e tutte le altre
+ * al datasource principale.
+ * La connessione fisica è ottenuta solo alla prima istruzione SQL, quando è già noto se la
+ * transazione è in sola lettura. Le letture sono eseguite comunque sul principale se l'utente
+ * ha effettuato da poco una scrittura oppure se la replica non è raggiungibile. Le letture
+ * condivise ({@link SharedReads}), i cui risultati finiscono nelle cache, sono eseguite sul
+ * principale se un qualunque utente ha effettuato da poco una scrittura.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements Closeable {
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReadYourWritesTracker readYourWritesTracker;
+    private final long retryAfterMillis;
+
+    // Istante fino al quale la replica è considerata non disponibile
+    private volatile long replicaUnavailableUntil = 0;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica,
+            ReadYourWritesTracker readYourWritesTracker, Duration retryAfter) {
+        super(primary);
+        this.primary = primary;
+        this.replica = replica;
+        this.readYourWritesTracker = readYourWritesTracker;
+        this.retryAfterMillis = retryAfter.toMillis();
+        setReadOnlyDataSource(new DelegatingDataSource(replica) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return readOnlyConnection(null, null);
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return readOnlyConnection(username, password);
+            }
+        });
+    }
+
+    private Connection readOnlyConnection(String username, String password) throws SQLException {
+        if (readYourWritesTracker.recentlyWrote()
+                || (SharedReads.active() && readYourWritesTracker.anyoneRecentlyWrote())
+                || System.currentTimeMillis() < replicaUnavailableUntil) {
+            return connection(primary, username, password);
+        }
+        try {
+            return connection(replica, username, password);
+        } catch (SQLException e) {
+            replicaUnavailableUntil = System.currentTimeMillis() + retryAfterMillis;
+            log.warn("Replica del database non disponibile, le letture sono eseguite sul database "
+                    + "principale per i prossimi {} ms: {}", retryAfterMillis, e.getMessage());
+            return connection(primary, username, password);
+        }
+    }
+
+    private static Connection connection(DataSource dataSource, String username, String password)
+            throws SQLException {
+        return username != null
+                ? dataSource.getConnection(username, password) : dataSource.getConnection();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (DataSource dataSource : new DataSource[] { replica, primary }) {
+            if (dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Errore durante la chiusura del datasource {}", dataSource, e);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.config;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import it.cnr.anac.transparency.result.repositories.ResultDao;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Individua i flussi da cui dipende la risposta a una richiesta delle API: quelli indicati
+ * nei parametri workflowId o workflowIds, l'ultimo flusso completato del parametro codiceIpa
+ * per le API per codice IPA, altrimenti tutti i flussi.
+ */
+@RequiredArgsConstructor
+public class RequestWorkflowResolver {
+
+    private static final Set<String> WORKFLOW_ID_PARAMETERS = Set.of("workflowId", "workflowIds");
+
+    private final ResultDao resultDao;
+
+    /**
+     * Percorsi delle API in cui i risultati sono quelli dell'ultimo flusso completato
+     * del parametro codiceIpa.
+     */
+    private final Set<String> latestWorkflowPaths;
+
+    /**
+     * @return i flussi da cui dipende la risposta, ordinati, vuoto se la richiesta è per
+     *     codice IPA e il codice IPA non ha flussi completati. Un insieme vuoto indica
+     *     tutti i flussi.
+     */
+    public Optional<SortedSet<String>> workflowIds(HttpServletRequest request) {
+        if (latestWorkflowPaths.contains(path(request))) {
+            String codiceIpa = request.getParameter("codiceIpa");
+            if (codiceIpa == null) {
+                return Optional.empty();
+            }
+            return resultDao.lastWorkflowIdForCodiceIpa(codiceIpa).map(workflowId -> new TreeSet<>(Set.of(workflowId)));
+        }
+        SortedSet<String> workflowIds = new TreeSet<>();
+        WORKFLOW_ID_PARAMETERS.stream()
+                .map(request::getParameterValues)
+                .filter(Objects::nonNull)
+                .flatMap(Arrays::stream)
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .filter(value -> !value.isBlank())
+                .forEach(workflowIds::add);
+        return Optional.of(workflowIds);
+    }
+
+    public static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.config;
+
+import java.io.IOException;
+
+import it.cnr.anac.transparency.result.services.CachingService;
+import it.cnr.anac.transparency.result.services.DataVersionService;
+import it.cnr.anac.transparency.result.v1.ApiRoutes;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Registra la cache delle risposte serializzate sulle API di ricerca dei risultati che
+ * già utilizzano la cache applicativa (e il relativo parametro noCache), con il secondo
+ * livello su disco per le risposte dei flussi completati.
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = "caching.responses", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ResponseCacheConfiguration {
+
+    private static final String RESULTS_PATH = ApiRoutes.BASE_PATH + "/results";
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "caching.responses.disk", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public DiskResponseStore diskResponseStore(CachingProperties properties) throws IOException {
+        CachingProperties.Disk disk = properties.getResponses().getDisk();
+        return new DiskResponseStore(disk.getDirectory(),
+                (int) Math.min(Integer.MAX_VALUE, disk.getSegmentSize().toBytes()), disk.getMaxSegments());
+    }
+
+    @Bean
+    public FilterRegistrationBean<ResponseCacheFilter> responseCacheFilter(CacheManager cacheManager,
+            CachingService cachingService, CachingProperties properties,
+            DataVersionService dataVersionService, RequestWorkflowResolver requestWorkflowResolver,
+            ObjectProvider<DiskResponseStore> diskResponseStore) {
+        FilterRegistrationBean<ResponseCacheFilter> registration = new FilterRegistrationBean<>(
+                new ResponseCacheFilter(cacheManager.getCache(ResponseCacheFilter.RESPONSES_CACHE_NAME),
+                        cachingService, properties.getResponses().getGzipMinSize(),
+                        dataVersionService, requestWorkflowResolver, diskResponseStore.getIfAvailable()));
+        registration.addUrlPatterns(
+                RESULTS_PATH + ApiRoutes.LIST,
+                RESULTS_PATH + ApiRoutes.CODICE_IPA,
+                RESULTS_PATH + ApiRoutes.CODICE_IPA_WORKFLOWID,
+                RESULTS_PATH + "/countAndGroupByWorkflowIdAndStatus");
+        // Dopo la gestione delle richieste condizionali
+        registration.setOrder(Ordered.LOWEST_PRECEDENCE - 10);
+        return registration;
+    }
+}
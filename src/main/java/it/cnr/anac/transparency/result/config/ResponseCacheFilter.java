@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.config;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import it.cnr.anac.transparency.result.services.CachingService;
+import it.cnr.anac.transparency.result.services.DataVersionService;
+import it.cnr.anac.transparency.result.services.WorkflowScopedKey;
+import it.cnr.anac.transparency.result.services.WorkflowScopedKeyGenerator;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+/**
+ * Cache delle risposte già serializzate delle API di ricerca dei risultati: in caso di hit
+ * la risposta è scritta direttamente dai byte in cache, senza interrogare il database,
+ * convertire i risultati e serializzarli in JSON.
+ * La chiave è il percorso della richiesta con i parametri ordinati per nome, il parametro
+ * noCache=true esclude la richiesta dalla cache come nei metodi dei controller. Per le API
+ * per codice IPA la chiave contiene anche l'ultimo flusso completato individuato dal
+ * {@link RequestWorkflowResolver}, quindi cambia al completamento di un nuovo flusso.
+ * Le risposte che dipendono solo da flussi completati sono conservate anche nel
+ * {@link DiskResponseStore}, con la versione dei dati dei flussi al momento della scrittura:
+ * sono quindi disponibili dopo un riavvio o lo svuotamento della cache in memoria e non
+ * sono più restituite se i flussi o i loro risultati vengono modificati.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    public static final String RESPONSES_CACHE_NAME = "responses";
+    public static final String CACHE_HEADER = "X-Cache";
+
+    private static final String NO_CACHE_PARAMETER = "noCache";
+    private static final Set<String> WORKFLOW_ID_PARAMETERS = Set.of("workflowId", "workflowIds");
+
+    private final Cache cache;
+    private final CachingService cachingService;
+    private final int gzipMinSize;
+    private final DataVersionService dataVersionService;
+    private final RequestWorkflowResolver requestWorkflowResolver;
+    // null se l'archivio su disco non è abilitato
+    private final DiskResponseStore diskResponseStore;
+
+    /**
+     * Chiave e versione di una risposta nell'archivio su disco.
+     */
+    private record DiskKey(String key, String version) {
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!"GET".equals(request.getMethod()) || Boolean.parseBoolean(request.getParameter(NO_CACHE_PARAMETER))) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        WorkflowScopedKey requestKey = key(request);
+        Optional<SortedSet<String>> workflowIds = requestWorkflowResolver.workflowIds(request);
+        if (workflowIds.isEmpty()) {
+            // Nessun flusso completato per il codiceIpa, la risposta è un errore
+            filterChain.doFilter(request, response);
+            return;
+        }
+        WorkflowScopedKey key = resolvedKey(requestKey, workflowIds.get());
+        CachedResponse cached = cache.get(key, CachedResponse.class);
+        if (cached != null) {
+            write(cached, "HIT", request, response);
+            return;
+        }
+        DiskKey diskKey = diskKey(requestKey, workflowIds.get());
+        if (diskKey != null) {
+            Optional<CachedResponse> stored = diskResponseStore.get(diskKey.key(), diskKey.version());
+            if (stored.isPresent()) {
+                cache.put(key, stored.get());
+                write(stored.get(), "HIT-DISK", request, response);
+                return;
+            }
+        }
+        // Una modifica dei flussi della risposta durante la richiesta la rende non più valida
+        long evictions = cachingService.evictions(key);
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        wrapper.setHeader(CACHE_HEADER, "MISS");
+        try (SharedReads.Scope scope = SharedReads.open()) {
+            filterChain.doFilter(request, wrapper);
+        }
+        if (wrapper.getStatus() == HttpServletResponse.SC_OK && evictions == cachingService.evictions(key)) {
+            CachedResponse computed =
+                    CachedResponse.of(wrapper.getContentType(), wrapper.getContentAsByteArray(), gzipMinSize);
+            cache.put(key, computed);
+            if (diskKey != null) {
+                store(diskKey, computed);
+            }
+        }
+        wrapper.copyBodyToResponse();
+    }
+
+    /**
+     * @return la chiave nell'archivio su disco, null se l'archivio non è abilitato o se la
+     *     risposta non dipende solo da flussi completati. La chiave contiene anche i flussi,
+     *     per le API per codice IPA cambia quindi quando cambia l'ultimo flusso completato.
+     */
+    private DiskKey diskKey(WorkflowScopedKey key, SortedSet<String> workflowIds) {
+        if (diskResponseStore == null || workflowIds.isEmpty()) {
+            return null;
+        }
+        DataVersionService.DataVersion version = dataVersionService.version(workflowIds);
+        if (!version.allCompleted(workflowIds.size())) {
+            return null;
+        }
+        return new DiskKey(key.key() + "#" + String.join(",", workflowIds), version.stamp());
+    }
+
+    /**
+     * @return la chiave della richiesta, con i flussi individuati dal {@link RequestWorkflowResolver}
+     *     se la richiesta non li indica nei parametri, come per le API per codice IPA.
+     */
+    private static WorkflowScopedKey resolvedKey(WorkflowScopedKey key, SortedSet<String> workflowIds) {
+        if (!key.workflowIds().isEmpty() || workflowIds.isEmpty()) {
+            return key;
+        }
+        return new WorkflowScopedKey(Set.copyOf(workflowIds), key.key() + "#" + String.join(",", workflowIds));
+    }
+
+    private void store(DiskKey diskKey, CachedResponse response) {
+        try {
+            if (!diskResponseStore.put(diskKey.key(), diskKey.version(), response)) {
+                log.debug("Risposta per {} troppo grande per l'archivio su disco", diskKey.key());
+            }
+        } catch (IOException e) {
+            log.warn("Impossibile salvare su disco la risposta per {}", diskKey.key(), e);
+        }
+    }
+
+    private static void write(CachedResponse cached, String cacheStatus, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        byte[] body = cached.body();
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(cached.contentType());
+        response.setHeader(CACHE_HEADER, cacheStatus);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (cached.gzipBody() != null && acceptsGzip(request)) {
+            body = cached.gzipBody();
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+
+    /**
+     * La chiave dipende dai flussi indicati nei parametri workflowId o workflowIds, se assenti
+     * la risposta è eliminata dalla cache alla modifica di qualunque flusso.
+     */
+    static WorkflowScopedKey key(HttpServletRequest request) {
+        Map<String, String[]> parameters = new TreeMap<>(request.getParameterMap());
+        parameters.remove(NO_CACHE_PARAMETER);
+        Set<String> workflowIds = parameters.entrySet().stream()
+                .filter(parameter -> WORKFLOW_ID_PARAMETERS.contains(parameter.getKey()))
+                .flatMap(parameter -> Arrays.stream(parameter.getValue()))
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .filter(value -> !value.isBlank())
+                .collect(Collectors.toSet());
+        String normalized = request.getRequestURI().substring(request.getContextPath().length()) + "?"
+                + parameters.entrySet().stream()
+                        .map(parameter -> parameter.getKey() + "=" + String.join(",", parameter.getValue()))
+                        .collect(Collectors.joining("&"));
+        return new WorkflowScopedKey(WorkflowScopedKeyGenerator.workflowIds(workflowIds), normalized);
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
+
+/**
+ * Configurazione del punteggio degli enti per flusso (tabella company_workflow_score).
+ */
+@Getter
+@Setter
+@Validated
+@ConfigurationProperties("scorecard")
+public class ScorecardProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Stati dei risultati che corrispondono a una regola superata, almeno uno.
+     */
+    @NotEmpty
+    private List<Integer> passedStatuses = new ArrayList<>(List.of(200));
+
+    /**
+     * Se true all'avvio sono calcolati in background i punteggi dei flussi completati
+     * che non li hanno ancora.
+     */
+    private boolean backfillOnStartup = true;
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.config;
+
+/**
+ * Segnala al {@link ReplicaRoutingDataSource} le letture i cui risultati sono condivisi tra
+ * gli utenti, come i valori calcolati per le cache e la versione dei dati usata per ETag e
+ * archivio su disco. Queste letture sono eseguite sul database principale se un qualunque
+ * utente, o un'altra istanza, ha effettuato da poco una scrittura: la replica potrebbe non
+ * averla ancora ricevuta e il valore superato resterebbe in cache fino alla sua scadenza.
+ */
+public final class SharedReads {
+
+    private static final ThreadLocal<Boolean> ACTIVE = new ThreadLocal<>();
+
+    /**
+     * Delimita le letture condivise eseguite nel thread corrente.
+     */
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private SharedReads() {
+    }
+
+    /**
+     * @return true se il thread corrente sta eseguendo letture condivise.
+     */
+    public static boolean active() {
+        return Boolean.TRUE.equals(ACTIVE.get());
+    }
+
+    /**
+     * Inizia le letture condivise nel thread corrente, fino alla chiusura dello scope
+     * restituito. Gli scope possono essere annidati.
+     */
+    public static Scope open() {
+        if (active()) {
+            return () -> { };
+        }
+        ACTIVE.set(Boolean.TRUE);
+        return ACTIVE::remove;
+    }
+}
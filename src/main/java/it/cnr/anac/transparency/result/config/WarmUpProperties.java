@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Piano di preriscaldamento delle cache dei risultati, eseguito in background al completamento
+ * di un flusso e all'avvio dell'applicazione.
+ */
+@Getter
+@Setter
+@ConfigurationProperties("caching.warmup")
+public class WarmUpProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Numero degli ultimi flussi completati da preriscaldare all'avvio, 0 per non eseguire
+     * il preriscaldamento all'avvio.
+     */
+    private int startupWorkflows = 1;
+
+    /**
+     * Numero di pagine della lista dei risultati da calcolare per ogni flusso.
+     */
+    private int pages = 1;
+
+    private int pageSize = 20;
+
+    /**
+     * Ordinamento delle pagine, nel formato del parametro sort delle API (es. "id,desc").
+     */
+    private List<String> sort = new ArrayList<>();
+
+    /**
+     * Liste di stati, separati da virgola, per cui calcolare il raggruppamento per categorie.
+     */
+    private List<String> categoryStatuses = new ArrayList<>(List.of("200"));
+
+    /**
+     * Pausa tra un'operazione e la successiva, per non sottrarre risorse al traffico.
+     */
+    private Duration pause = Duration.ofMillis(500);
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.events;
+
+import java.util.Set;
+
+/**
+ * Evento pubblicato quando i risultati di un flusso vengono inseriti, modificati o eliminati.
+ *
+ * @param workflowId id del flusso dei risultati
+ * @param codiciIpa codici IPA dei risultati modificati, vuoto se la modifica riguarda
+ *     tutti i risultati del flusso
+ * @param deleted true se i risultati sono stati eliminati
+ */
+public record ResultsChangedEvent(String workflowId, Set<String> codiciIpa, boolean deleted) {
+
+  /**
+   * @return true se la modifica riguarda tutti i risultati del flusso.
+   */
+  public boolean wholeWorkflow() {
+    return codiciIpa.isEmpty();
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.events;
+
+import it.cnr.anac.transparency.result.models.Workflow;
+
+/**
+ * Evento pubblicato quando un workflow viene creato, aggiornato o eliminato.
+ *
+ * @param workflowId id del flusso
+ * @param previousStatus stato del flusso prima della modifica, null se il flusso è stato
+ *     appena creato o se non noto
+ * @param status stato del flusso dopo la modifica, null se non noto
+ * @param deleted true se il flusso è stato eliminato
+ */
+public record WorkflowChangedEvent(String workflowId, Workflow.WorkflowStatus previousStatus,
+    Workflow.WorkflowStatus status, boolean deleted) {
+
+  /**
+   * @return true se il flusso è diventato completato con questa modifica, false anche se
+   *     il flusso era già completato prima della modifica.
+   */
+  public boolean completed() {
+    return !deleted && status == Workflow.WorkflowStatus.COMPLETED
+        && previousStatus != Workflow.WorkflowStatus.COMPLETED;
+  }
+
+  /**
+   * @return true se il flusso potrebbe non essere più completato: è stato eliminato oppure
+   *     era completato ed è passato a un altro stato.
+   */
+  public boolean noLongerCompleted() {
+    return deleted || (previousStatus == Workflow.WorkflowStatus.COMPLETED
+        && status != Workflow.WorkflowStatus.COMPLETED);
+  }
+}
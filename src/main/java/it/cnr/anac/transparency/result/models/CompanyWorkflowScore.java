@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.models;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Punteggio di un ente in un flusso: numero di regole superate e non superate, numero
+ * di risultati per stato e categoria di appartenenza.
+ * La tabella è mantenuta dal CompanyScoreService durante il caricamento dei risultati ed è
+ * ricalcolata e consolidata (finalized) al completamento del flusso.
+ */
+@ToString
+@Getter
+@Setter
+@NoArgsConstructor
+@IdClass(CompanyWorkflowScore.Key.class)
+@Table(name = "company_workflow_score")
+@Entity
+public class CompanyWorkflowScore {
+
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class Key implements Serializable {
+    private String workflowId;
+    private Long idIpa;
+  }
+
+  @Id
+  private String workflowId;
+
+  @Id
+  private Long idIpa;
+
+  private String codiceIpa;
+  private String denominazioneEnte;
+  private String codiceCategoria;
+
+  // Risultati con uno degli stati considerati superati (scorecard.passed-statuses)
+  private Integer passed;
+
+  private Integer failed;
+
+  // Numero di risultati per stato
+  @JdbcTypeCode(SqlTypes.JSON)
+  private Map<String, Long> statusCounts;
+
+  // Posizione nella lista delle categorie configurate (rules) in base al numero di regole
+  // superate, null se non rientra in nessuna categoria
+  private Integer category;
+
+  // True quando il flusso è completato e il punteggio non cambia più
+  private Boolean finalized;
+
+  private LocalDateTime updatedAt;
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.models;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ultimo flusso completato per ciascun codice IPA, cioè il flusso completato a cui appartiene
+ * il risultato più recente (con id maggiore) del codice IPA.
+ * La tabella è mantenuta aggiornata dal LatestWorkflowService al completamento dei flussi
+ * e alla modifica dei risultati.
+ */
+@ToString
+@Getter
+@Setter
+@NoArgsConstructor
+@Table(name = "latest_workflows")
+@Entity
+public class LatestWorkflow {
+
+  @Id
+  private String codiceIpa;
+
+  private String workflowId;
+
+  // Id del risultato più recente del codice IPA nel flusso
+  private Long resultId;
+
+  private LocalDateTime completedAt;
+
+}
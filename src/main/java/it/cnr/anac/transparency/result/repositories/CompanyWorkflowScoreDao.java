@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.repositories;
+
+import com.querydsl.core.BooleanBuilder;
+import it.cnr.anac.transparency.result.models.CompanyWorkflowScore;
+import it.cnr.anac.transparency.result.models.QCompanyWorkflowScore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * DAO per le ricerche sui punteggi degli enti per flusso, eseguite in transazioni in sola lettura.
+ */
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+@Component
+public class CompanyWorkflowScoreDao {
+
+    private final CompanyWorkflowScoreRepository repo;
+
+    public Page<CompanyWorkflowScore> find(
+            String workflowId,
+            Optional<Integer> category,
+            Optional<String> codiceIpa,
+            Optional<String> codiceCategoria,
+            Optional<Integer> minPassed,
+            Optional<Integer> maxPassed,
+            Pageable pageable) {
+        QCompanyWorkflowScore score = QCompanyWorkflowScore.companyWorkflowScore;
+        BooleanBuilder conditions = new BooleanBuilder(score.workflowId.eq(workflowId));
+        category.ifPresent(value -> conditions.and(score.category.eq(value)));
+        codiceIpa.ifPresent(value -> conditions.and(score.codiceIpa.eq(value)));
+        codiceCategoria.ifPresent(value -> conditions.and(score.codiceCategoria.eq(value)));
+        minPassed.ifPresent(value -> conditions.and(score.passed.goe(value)));
+        maxPassed.ifPresent(value -> conditions.and(score.passed.loe(value)));
+        return repo.findAll(conditions, pageable);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.repositories;
+
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Cursore opaco per la paginazione keyset (seek) dei risultati.
+ * Contiene la proprietà e la direzione di ordinamento, l'id e il valore della chiave
+ * di ordinamento dell'ultimo elemento restituito.
+ *
+ * @param property proprietà di ordinamento (id, createdAt, updatedAt)
+ * @param direction direzione dell'ordinamento
+ * @param id id dell'ultimo risultato restituito
+ * @param value valore della chiave di ordinamento dell'ultimo risultato restituito
+ */
+public record ResultCursor(String property, Sort.Direction direction, Long id, String value) {
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * @return la rappresentazione opaca del cursore da restituire ai client.
+     */
+    public String encode() {
+        String raw = String.join(SEPARATOR, property, direction.name(), id.toString(), value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodifica un cursore prodotto da {@link #encode()}.
+     *
+     * @throws IllegalArgumentException se il token non è un cursore valido.
+     */
+    public static ResultCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // Il valore è l'ultimo campo e può contenere a sua volta il separatore
+            String[] parts = raw.split("\\" + SEPARATOR, 4);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Cursore non valido: " + token);
+            }
+            return new ResultCursor(parts[0], Sort.Direction.valueOf(parts[1]), Long.valueOf(parts[2]), parts[3]);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursore non valido: " + token, e);
+        }
+    }
+}
@@ -17,43 +17,118 @@
 package it.cnr.anac.transparency.result.repositories;
 
 import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.ComparableExpression;
+import com.querydsl.core.types.dsl.DateTimePath;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.PathBuilderFactory;
 import com.querydsl.jpa.impl.JPAQuery;
 import it.cnr.anac.transparency.result.config.RuleCategoryProperties;
 import it.cnr.anac.transparency.result.models.*;
+import it.cnr.anac.transparency.result.services.WorkflowScopedKey;
+import it.cnr.anac.transparency.result.services.WorkflowScopedKeyGenerator;
 import it.cnr.anac.transparency.result.v1.dto.CategoryValueDto;
+import it.cnr.anac.transparency.result.v1.dto.CompanySearchDto;
+import it.cnr.anac.transparency.result.v1.dto.CursorPageDto;
+import it.cnr.anac.transparency.result.v1.dto.ResultShowDto;
+import it.cnr.anac.transparency.result.v1.dto.RuleDto;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.interceptor.SimpleKey;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.support.Querydsl;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
-import java.util.stream.StreamSupport;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 /**
  * DAO per le ricerche sui risultati di validazione.
- *
+ * Tutte le ricerche sono eseguite in transazioni in sola lettura, Hibernate quindi non
+ * effettua il flush prima delle query e non mantiene le copie delle entity lette
+ * per il dirty checking.
  */
+@Transactional(readOnly = true)
 @RequiredArgsConstructor
 @Component
 public class ResultDao {
 
     public final static String RESULTS_CACHE_NAME = "results";
     public final static String RESULTS_GROUPED_BY_CACHE_NAME = "resultsGroupedBy";
+    public final static String RESULTS_COUNT_CACHE_NAME = "resultsCount";
+    public final static String RESULTS_HISTORY_CACHE_NAME = "resultsHistory";
+
+    /**
+     * Numero di righe lette dal database per ogni fetch del cursore negli stream.
+     */
+    private final static int STREAM_FETCH_SIZE = 1000;
+
+    /**
+     * Numero massimo di codici IPA passati in una singola query nelle ricerche per più codici IPA.
+     */
+    private final static int BATCH_CHUNK_SIZE = 5000;
+
+    /**
+     * Colonne dell'ente incorporato nei risultati, corrispondono al raggruppamento
+     * per {@link Company} delle query JPA.
+     */
+    private final static String COMPANY_COLUMNS = "id_ipa, codice_ipa, denominazione_ente, codice_fiscale_ente, "
+            + "tipologia, codice_categoria, codice_natura, acronimo, sito_istituzionale, sorgente";
+
+    /**
+     * Proprietà del cursore della paginazione keyset degli enti raggruppati.
+     */
+    private final static String COMPANY_GROUP_CURSOR_PROPERTY = "idIpa";
+
+    /**
+     * Proprietà utilizzabili per l'ordinamento nella paginazione keyset.
+     */
+    public final static Set<String> KEYSET_SORT_PROPERTIES = Set.of("id", "createdAt", "updatedAt");
+
+    /**
+     * Valore nel cursore di una chiave di ordinamento null.
+     */
+    private final static String NULL_KEYSET_VALUE = "";
 
     private final ResultRepository repo;
     private final RuleCategoryProperties ruleCategoryProperties;
+    private final CacheManager cacheManager;
+
+    /**
+     * Soglia minima di similarità predefinita per la ricerca degli enti.
+     */
+    @Value("${search.companies.similarity-threshold:0.3}")
+    private double companySimilarityThreshold;
 
     @PersistenceContext
     private EntityManager entityManager;
@@ -68,51 +143,223 @@ public class ResultDao {
                         .fetchFirst());
     }
 
-    public Optional<Result> lastResultForCodiceIpa(String codiceIpa) {
+    /**
+     * @return l'id del flusso dell'ultimo risultato registrato.
+     */
+    public Optional<String> lastWorkflowId() {
         QResult result = QResult.result;
-        QWorkflow workflow = QWorkflow.workflow;
-        JPAQuery<Result> query = new JPAQuery<Result>(entityManager);
         return Optional.ofNullable(
-                query.from(result)
-                        .join(workflow).on(result.workflowId.eq(workflow.workflowId))
-                        .where(result.company.codiceIpa.eq(codiceIpa).and(workflow.status.eq(Workflow.WorkflowStatus.COMPLETED)))
-                        .orderBy(result.id.desc()).limit(1)
-                        .select(result)
+                new JPAQuery<String>(entityManager)
+                        .select(result.workflowId)
+                        .from(result)
+                        .orderBy(result.id.desc())
                         .fetchFirst());
     }
 
-    public List<CategoryValueDto> countResultsAndGroupByCategoriesWidthWorkflowIdAndStatus(
-            String workflowId,
-            List<Integer> status
-    ) {
-        return ruleCategoryProperties
-                .getRules()
-                .stream()
-                .map(ruleDto ->  new CategoryValueDto(
-                        ruleDto,
-                        countResults(
-                                workflowId,
-                                status,
-                                ruleDto.getMin(),
-                                ruleDto.getMax()
-                        )
-                ))
-                .collect(Collectors.toList());
+    /**
+     * @return l'id del flusso, tra quelli completati, dell'ultimo risultato registrato
+     * per il codiceIpa, letto per chiave primaria dalla tabella latest_workflows.
+     */
+    public Optional<String> lastWorkflowIdForCodiceIpa(String codiceIpa) {
+        return Optional.ofNullable(entityManager.find(LatestWorkflow.class, codiceIpa))
+                .map(LatestWorkflow::getWorkflowId);
+    }
+
+    /**
+     * Versione per più codici IPA di {@link #lastWorkflowIdForCodiceIpa(String)}, eseguita
+     * a blocchi di {@value #BATCH_CHUNK_SIZE} codici.
+     *
+     * @return la mappa codiceIpa -> workflowId, senza i codici IPA privi di flussi completati.
+     */
+    public Map<String, String> lastWorkflowIdsForCodiciIpa(Collection<String> codiciIpa) {
+        QLatestWorkflow latestWorkflow = QLatestWorkflow.latestWorkflow;
+        Map<String, String> workflowIds = new HashMap<>();
+        for (List<String> chunk : chunks(codiciIpa)) {
+            new JPAQuery<LatestWorkflow>(entityManager)
+                    .select(latestWorkflow)
+                    .from(latestWorkflow)
+                    .where(latestWorkflow.codiceIpa.in(chunk))
+                    .fetch()
+                    .forEach(latest -> workflowIds.put(latest.getCodiceIpa(), latest.getWorkflowId()));
+        }
+        return workflowIds;
+    }
+
+    /**
+     * Stati dei risultati dei codici IPA negli ultimi flussi completati in cui sono presenti,
+     * letti con una query per blocco di {@value #BATCH_CHUNK_SIZE} codici IPA. I risultati sono
+     * individuati tramite l'indice su codice_ipa e i flussi sono ordinati per data di
+     * completamento dalla tabella workflows.
+     *
+     * @param workflows numero massimo di flussi per codice IPA.
+     * @return righe (codice_ipa, workflow_id, completed_at, rule_name, status) ordinate per
+     *     codice IPA, flusso dal più recente e regola.
+     */
+    public List<Object[]> statusHistory(Collection<String> codiciIpa, int workflows) {
+        List<Object[]> rows = new ArrayList<>();
+        for (List<String> chunk : chunks(codiciIpa)) {
+            if (chunk.isEmpty()) {
+                continue;
+            }
+            @SuppressWarnings("unchecked")
+            List<Object[]> chunkRows = entityManager.createNativeQuery(
+                            "SELECT codice_ipa, workflow_id, completed_at, rule_name, status FROM ("
+                            + "SELECT r.codice_ipa, r.workflow_id, w.updated_at AS completed_at, r.rule_name, r.status, "
+                            + "dense_rank() OVER (PARTITION BY r.codice_ipa "
+                            + "ORDER BY w.updated_at DESC, r.workflow_id DESC) AS position "
+                            + "FROM results r JOIN workflows w ON w.workflow_id = r.workflow_id "
+                            + "WHERE r.codice_ipa IN (:codiciIpa) AND w.status = :status "
+                            + "AND r.rule_name IS NOT NULL) history "
+                            + "WHERE position <= :workflows "
+                            + "ORDER BY codice_ipa, position, rule_name")
+                    .setParameter("codiciIpa", chunk)
+                    .setParameter("status", Workflow.WorkflowStatus.COMPLETED.name())
+                    .setParameter("workflows", workflows)
+                    .getResultList();
+            rows.addAll(chunkRows);
+        }
+        return rows;
     }
 
-    private Integer countResults(String workflowId, List<Integer> status, Integer min, Integer max) {
+    /**
+     * Risultati di più codici IPA, ciascuno limitato al proprio flusso, letti con una query
+     * per blocco di {@value #BATCH_CHUNK_SIZE} codici IPA.
+     *
+     * @param workflowIds mappa codiceIpa -> workflowId dei risultati da leggere.
+     * @return i risultati raggruppati per codiceIpa, ordinati per id.
+     */
+    public Map<String, List<ResultShowDto>> findByCodiceIpaAndWorkflowId(Map<String, String> workflowIds) {
         QResult result = QResult.result;
-        JPAQuery<Company> queryTotal = new JPAQuery<Company>(entityManager)
-                .select(result.company)
-                .from(result)
-                .where(result.workflowId.eq(workflowId)
-                        .and(result.status.in(status)))
-                .groupBy(result.company)
-                .having(result.count().goe(min)
-                        .and(result.count().loe(max)));
-        return queryTotal.fetch().size();
+        Map<String, List<ResultShowDto>> results = new HashMap<>();
+        for (List<String> chunk : chunks(workflowIds.keySet())) {
+            Set<String> chunkWorkflowIds = chunk.stream().map(workflowIds::get).collect(Collectors.toSet());
+            new JPAQuery<ResultShowDto>(entityManager)
+                    .select(ResultProjections.show())
+                    .from(result)
+                    .where(result.company.codiceIpa.in(chunk)
+                            .and(result.workflowId.in(chunkWorkflowIds)))
+                    .orderBy(result.company.codiceIpa.asc(), result.id.asc())
+                    .fetch()
+                    .stream()
+                    // Un codice IPA può avere risultati anche nel flusso più recente di un altro
+                    .filter(dto -> dto.getWorkflowId().equals(workflowIds.get(dto.getCompany().getCodiceIpa())))
+                    .map(ResultProjections::withDestinationUrl)
+                    .forEach(dto -> results
+                            .computeIfAbsent(dto.getCompany().getCodiceIpa(), k -> new ArrayList<>())
+                            .add(dto));
+        }
+        return results;
+    }
+
+    private static List<List<String>> chunks(Collection<String> values) {
+        List<String> list = List.copyOf(values);
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < list.size(); from += BATCH_CHUNK_SIZE) {
+            chunks.add(list.subList(from, Math.min(from + BATCH_CHUNK_SIZE, list.size())));
+        }
+        return chunks;
     }
 
+    /**
+     * Ricerca per similarità degli enti su denominazione e codice fiscale, utilizzando
+     * gli indici trigram (pg_trgm) sulle colonne in minuscolo. Gli enti sono restituiti
+     * una sola volta, ordinati per similarità decrescente.
+     *
+     * @param text testo da cercare, anche parziale.
+     * @param workflowId se presente limita la ricerca ai risultati del flusso indicato.
+     * @param threshold soglia minima di similarità, se assente è utilizzata quella configurata.
+     * @param limit numero massimo di enti restituiti.
+     */
+    public List<CompanySearchDto> searchCompanies(
+            String text, Optional<String> workflowId, Optional<Double> threshold, int limit) {
+        // La soglia utilizzata dall'operatore <% è impostata solo per la transazione corrente
+        entityManager.createNativeQuery(
+                        "SELECT set_config('pg_trgm.word_similarity_threshold', :threshold, true)")
+                .setParameter("threshold", String.valueOf(threshold.orElse(companySimilarityThreshold)))
+                .getSingleResult();
+        String sql = "SELECT codice_ipa, id_ipa, denominazione_ente, codice_fiscale_ente, codice_categoria, similarity "
+                + "FROM (SELECT DISTINCT ON (codice_ipa) codice_ipa, id_ipa, denominazione_ente, "
+                + "codice_fiscale_ente, codice_categoria, "
+                + "greatest(word_similarity(lower(:text), lower(denominazione_ente)), "
+                + "word_similarity(lower(:text), lower(coalesce(codice_fiscale_ente, '')))) AS similarity "
+                + "FROM results "
+                + "WHERE (lower(:text) <% lower(denominazione_ente) OR lower(:text) <% lower(codice_fiscale_ente)) "
+                + (workflowId.isPresent() ? "AND workflow_id = :workflowId " : "")
+                + "ORDER BY codice_ipa, similarity DESC, id DESC) companies "
+                + "ORDER BY similarity DESC, denominazione_ente "
+                + "LIMIT :limit";
+        Query query = entityManager.createNativeQuery(sql)
+                .setParameter("text", text)
+                .setParameter("limit", limit);
+        workflowId.ifPresent(id -> query.setParameter("workflowId", id));
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = query.getResultList();
+        return rows.stream()
+                .map(row -> new CompanySearchDto(
+                        (String) row[0],
+                        row[1] != null ? ((Number) row[1]).longValue() : null,
+                        (String) row[2],
+                        (String) row[3],
+                        (String) row[4],
+                        ((Number) row[5]).doubleValue()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Versione con cache di {@link #countResultsAndGroupByCategoriesWidthWorkflowIdAndStatus(String, Set)},
+     * la chiave non dipende dall'ordine degli stati.
+     */
+    @Cacheable(cacheNames = RESULTS_GROUPED_BY_CACHE_NAME, keyGenerator = WorkflowScopedKeyGenerator.NAME, sync = true)
+    public List<CategoryValueDto> countResultsAndGroupByCategoriesWidthWorkflowIdAndStatusWithCache(
+            String workflowId,
+            Set<Integer> status) {
+        return countResultsAndGroupByCategoriesWidthWorkflowIdAndStatus(workflowId, status);
+    }
+
+    /**
+     * Numero di enti del flusso per ciascuna categoria configurata in {@link RuleCategoryProperties},
+     * in base al numero dei loro risultati con gli stati indicati.
+     * Tutte le categorie sono calcolate con una sola query: i risultati sono contati per ente
+     * e ogni ente è assegnato alle categorie il cui intervallo comprende il suo conteggio.
+     */
+    public List<CategoryValueDto> countResultsAndGroupByCategoriesWidthWorkflowIdAndStatus(
+            String workflowId,
+            Set<Integer> status
+    ) {
+        List<RuleDto> rules = Optional.ofNullable(ruleCategoryProperties.getRules()).orElse(List.of());
+        if (rules.isEmpty() || status.isEmpty()) {
+            return rules.stream().map(ruleDto -> new CategoryValueDto(ruleDto, 0)).collect(Collectors.toList());
+        }
+        String buckets = IntStream.range(0, rules.size())
+                .mapToObj(i -> String.format("count(*) FILTER (WHERE n BETWEEN :min%d AND :max%d)", i, i))
+                .collect(Collectors.joining(", "));
+        Query query = entityManager.createNativeQuery("SELECT " + buckets + " FROM ("
+                        + "SELECT count(*) AS n FROM results "
+                        + "WHERE workflow_id = :workflowId AND status IN (:status) "
+                        + "GROUP BY " + COMPANY_COLUMNS + ") companies")
+                .setParameter("workflowId", workflowId)
+                .setParameter("status", status);
+        for (int i = 0; i < rules.size(); i++) {
+            query.setParameter("min" + i, rules.get(i).getMin());
+            query.setParameter("max" + i, rules.get(i).getMax());
+        }
+        Object row = query.getSingleResult();
+        // Con una sola colonna la riga non è restituita come array
+        Object[] values = row instanceof Object[] array ? array : new Object[] { row };
+        List<CategoryValueDto> categories = new ArrayList<>(rules.size());
+        for (int i = 0; i < rules.size(); i++) {
+            categories.add(new CategoryValueDto(rules.get(i), ((Number) values[i]).intValue()));
+        }
+        return categories;
+    }
+
+    /**
+     * Enti del flusso con un numero di risultati, negli stati indicati, compreso tra
+     * minNumberOfRules e maxNumberOfRules, ordinati per idIpa.
+     * I risultati sono raggruppati solo per id_ipa, il totale è calcolato con una window
+     * function nella stessa query e i dati degli enti sono letti solo per la pagina richiesta.
+     * I risultati senza id_ipa non sono considerati.
+     */
     public Page<Result> findCompaniesByWorkflowAndStatusWithOccurencesBetween(
             String workflowId, List<Integer> status,
             Integer minNumberOfRules, Integer maxNumberOfRules,
@@ -120,105 +367,211 @@ public class ResultDao {
             String codiceIpa, String codiceCategoria,
             Pageable pageable
     ) {
-        QResult result = QResult.result;
-        JPAQuery<Company> query = new JPAQuery<Company>(entityManager)
-                .select(result.company)
-                .from(result)
-                .where(result.workflowId.eq(workflowId)
-                        .and(result.status.in(status)))
-                .groupBy(result.company)
-                .having(result.count().goe(minNumberOfRules)
-                        .and(result.count().loe(maxNumberOfRules)));
-        if (denominazioneEnte != null) query.where(result.company.denominazioneEnte.containsIgnoreCase(denominazioneEnte));
-        if (codiceFiscaleEnte != null) query.where(result.company.codiceFiscaleEnte.containsIgnoreCase(codiceFiscaleEnte));
-        if (codiceIpa != null) query.where(result.company.codiceIpa.eq(codiceIpa));
-        if (codiceCategoria != null) query.where(result.company.codiceCategoria.eq(codiceCategoria));
-
-        query.offset(pageable.getOffset());
-        query.limit(pageable.getPageSize());
-
-        List<Result> content = query.fetch().stream().map(Result::new).collect(Collectors.toList());
-        // Per contare il totale dei gruppi, bisogna usare il campo per cui si raggruppa
-        // in una lista e contarne la dimensione.
-        JPAQuery<Company> queryTotal = new JPAQuery<Company>(entityManager)
-                .select(result.company)
-                .from(result)
-                .where(result.workflowId.eq(workflowId)
-                        .and(result.status.in(status)))
-                .groupBy(result.company)
-                .having(result.count().goe(minNumberOfRules)
-                        .and(result.count().loe(maxNumberOfRules)));
-        // Esegui la query completa senza paginazione
-        if (denominazioneEnte != null) queryTotal.where(result.company.denominazioneEnte.containsIgnoreCase(denominazioneEnte));
-        if (codiceFiscaleEnte != null) queryTotal.where(result.company.codiceFiscaleEnte.containsIgnoreCase(codiceFiscaleEnte));
-        if (codiceIpa != null) queryTotal.where(result.company.codiceIpa.eq(codiceIpa));
-        if (codiceCategoria != null) queryTotal.where(result.company.codiceCategoria.eq(codiceCategoria));
-        long total = queryTotal.fetch().size();
+        List<Object[]> rows = findCompanyGroups(workflowId, status, minNumberOfRules, maxNumberOfRules,
+                denominazioneEnte, codiceFiscaleEnte, codiceIpa, codiceCategoria,
+                Optional.empty(), true, pageable.isPaged() ? pageable.getOffset() : 0,
+                pageable.isPaged() ? pageable.getPageSize() : null);
+        List<Result> content = rows.stream().map(ResultDao::companyGroup).map(Result::new).collect(Collectors.toList());
+        // Il totale è presente in ogni riga, manca solo se la pagina richiesta è oltre l'ultima
+        return PageableExecutionUtils.getPage(content, pageable, () -> rows.isEmpty()
+                ? countCompanyGroups(workflowId, status, minNumberOfRules, maxNumberOfRules,
+                        denominazioneEnte, codiceFiscaleEnte, codiceIpa, codiceCategoria)
+                : ((Number) rows.get(0)[0]).longValue());
+    }
+
+    /**
+     * Come {@link #findCompaniesByWorkflowAndStatusWithOccurencesBetween} ma con paginazione
+     * keyset su idIpa: sono raggruppati solo i risultati successivi al cursore e non è calcolato
+     * il totale, quindi il costo di ogni pagina non dipende dalla sua posizione.
+     *
+     * @param after cursore restituito dalla pagina precedente, vuoto per la prima pagina.
+     */
+    public CursorPageDto<Result> findCompaniesByWorkflowAndStatusWithOccurencesBetweenAfter(
+            String workflowId, List<Integer> status,
+            Integer minNumberOfRules, Integer maxNumberOfRules,
+            String denominazioneEnte, String codiceFiscaleEnte,
+            String codiceIpa, String codiceCategoria,
+            Optional<ResultCursor> after, int size
+    ) {
+        Optional<Long> afterIdIpa = after.map(cursor -> {
+            if (!COMPANY_GROUP_CURSOR_PROPERTY.equals(cursor.property())) {
+                throw new IllegalArgumentException("Cursore non valido: " + cursor.encode());
+            }
+            return cursor.id();
+        });
+        List<Result> content = findCompanyGroups(workflowId, status, minNumberOfRules, maxNumberOfRules,
+                denominazioneEnte, codiceFiscaleEnte, codiceIpa, codiceCategoria, afterIdIpa, false, 0, size + 1)
+                .stream().map(ResultDao::companyGroup).map(Result::new).collect(Collectors.toList());
+        String next = null;
+        if (content.size() > size) {
+            content = content.subList(0, size);
+            Long last = content.get(size - 1).getCompany().getIdIpa();
+            next = new ResultCursor(COMPANY_GROUP_CURSOR_PROPERTY, Sort.Direction.ASC, last, last.toString()).encode();
+        }
+        return new CursorPageDto<>(content, size, next);
+    }
+
+    /**
+     * @param afterIdIpa se presente sono raggruppati solo i risultati con id_ipa successivo.
+     * @param withTotal true per calcolare il totale dei gruppi, altrimenti il totale è null.
+     * @return le righe (totale dei gruppi, colonne dell'ente) della pagina richiesta.
+     */
+    private List<Object[]> findCompanyGroups(
+            String workflowId, List<Integer> status,
+            Integer minNumberOfRules, Integer maxNumberOfRules,
+            String denominazioneEnte, String codiceFiscaleEnte,
+            String codiceIpa, String codiceCategoria,
+            Optional<Long> afterIdIpa, boolean withTotal, long offset, Integer limit) {
+        String sql = "SELECT p.total, c.* FROM ("
+                + "SELECT id_ipa, " + (withTotal ? "count(*) OVER ()" : "CAST(NULL AS bigint)") + " AS total FROM ("
+                + companyGroups(denominazioneEnte, codiceFiscaleEnte, codiceIpa, codiceCategoria,
+                        afterIdIpa.isPresent()) + ") grouped "
+                + "ORDER BY id_ipa " + (limit != null ? "LIMIT :limit " : "") + "OFFSET :offset) p "
+                + "CROSS JOIN LATERAL (SELECT " + COMPANY_COLUMNS + " FROM results r "
+                + "WHERE r.workflow_id = :workflowId AND r.id_ipa = p.id_ipa ORDER BY r.id DESC LIMIT 1) c "
+                + "ORDER BY p.id_ipa";
+        Query query = entityManager.createNativeQuery(sql);
+        setCompanyGroupsParameters(query, workflowId, status, minNumberOfRules, maxNumberOfRules,
+                denominazioneEnte, codiceFiscaleEnte, codiceIpa, codiceCategoria);
+        afterIdIpa.ifPresent(idIpa -> query.setParameter("afterIdIpa", idIpa));
+        if (limit != null) {
+            query.setParameter("limit", limit);
+        }
+        query.setParameter("offset", offset);
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = query.getResultList();
+        return rows;
+    }
+
+    private long countCompanyGroups(
+            String workflowId, List<Integer> status,
+            Integer minNumberOfRules, Integer maxNumberOfRules,
+            String denominazioneEnte, String codiceFiscaleEnte,
+            String codiceIpa, String codiceCategoria) {
+        Query query = entityManager.createNativeQuery("SELECT count(*) FROM ("
+                + companyGroups(denominazioneEnte, codiceFiscaleEnte, codiceIpa, codiceCategoria, false) + ") grouped");
+        setCompanyGroupsParameters(query, workflowId, status, minNumberOfRules, maxNumberOfRules,
+                denominazioneEnte, codiceFiscaleEnte, codiceIpa, codiceCategoria);
+        return ((Number) query.getSingleResult()).longValue();
+    }
+
+    /**
+     * Query degli id_ipa degli enti del flusso con un numero di risultati compreso tra :min e :max,
+     * eventualmente solo successivi a :afterIdIpa.
+     */
+    private static String companyGroups(String denominazioneEnte, String codiceFiscaleEnte,
+                                        String codiceIpa, String codiceCategoria, boolean afterIdIpa) {
+        StringBuilder sql = new StringBuilder("SELECT id_ipa FROM results "
+                + "WHERE workflow_id = :workflowId AND status IN (:status) AND id_ipa IS NOT NULL");
+        if (afterIdIpa) sql.append(" AND id_ipa > :afterIdIpa");
+        if (denominazioneEnte != null) sql.append(" AND lower(denominazione_ente) LIKE '%' || lower(:denominazioneEnte) || '%'");
+        if (codiceFiscaleEnte != null) sql.append(" AND lower(codice_fiscale_ente) LIKE '%' || lower(:codiceFiscaleEnte) || '%'");
+        if (codiceIpa != null) sql.append(" AND codice_ipa = :codiceIpa");
+        if (codiceCategoria != null) sql.append(" AND codice_categoria = :codiceCategoria");
+        return sql.append(" GROUP BY id_ipa HAVING count(*) BETWEEN :min AND :max").toString();
+    }
+
+    private static void setCompanyGroupsParameters(Query query,
+            String workflowId, List<Integer> status,
+            Integer minNumberOfRules, Integer maxNumberOfRules,
+            String denominazioneEnte, String codiceFiscaleEnte,
+            String codiceIpa, String codiceCategoria) {
+        query.setParameter("workflowId", workflowId)
+                .setParameter("status", status)
+                .setParameter("min", minNumberOfRules)
+                .setParameter("max", maxNumberOfRules);
+        if (denominazioneEnte != null) query.setParameter("denominazioneEnte", denominazioneEnte);
+        if (codiceFiscaleEnte != null) query.setParameter("codiceFiscaleEnte", codiceFiscaleEnte);
+        if (codiceIpa != null) query.setParameter("codiceIpa", codiceIpa);
+        if (codiceCategoria != null) query.setParameter("codiceCategoria", codiceCategoria);
+    }
 
-        return new PageImpl<>(content, pageable, total);
+    /**
+     * @param row riga con il totale dei gruppi seguito dalle colonne {@link #COMPANY_COLUMNS}.
+     */
+    private static Company companyGroup(Object[] row) {
+        Company company = new Company();
+        company.setIdIpa(row[1] != null ? ((Number) row[1]).longValue() : null);
+        company.setCodiceIpa((String) row[2]);
+        company.setDenominazioneEnte((String) row[3]);
+        company.setCodiceFiscaleEnte((String) row[4]);
+        company.setTipologia((String) row[5]);
+        company.setCodiceCategoria((String) row[6]);
+        company.setCodiceNatura((String) row[7]);
+        company.setAcronimo((String) row[8]);
+        company.setSitoIstituzionale((String) row[9]);
+        company.setSorgente((String) row[10]);
+        return company;
     }
 
-    @Cacheable(RESULTS_GROUPED_BY_CACHE_NAME)
+    @Cacheable(cacheNames = RESULTS_GROUPED_BY_CACHE_NAME, keyGenerator = WorkflowScopedKeyGenerator.NAME, sync = true)
     public List<ResultCount> countAndGroupByWorkflowIdAndStatusWithCache(String ruleName, List<String> workflowId) {
         return countAndGroupByWorkflowIdAndStatus(ruleName, workflowId);
     }
 
+    /**
+     * Conteggio dei risultati per flusso e stato, letto dalla vista result_status_totals
+     * mantenuta dai trigger sulla tabella results, senza scandire i risultati.
+     */
     public List<ResultCount> countAndGroupByWorkflowIdAndStatus(String ruleName, List<String> workflowId) {
-        QResult result = QResult.result;
-        JPAQuery<Result> query = new JPAQuery<Result>(entityManager);
-        if (Optional.ofNullable(ruleName).filter(string -> !string.isEmpty()).isPresent()) {
-            query = query.where(new BooleanBuilder(result.ruleName.eq(ruleName)));
+        boolean byRuleName = ruleName != null && !ruleName.isEmpty();
+        boolean byWorkflowId = workflowId != null && !workflowId.isEmpty();
+        StringBuilder sql = new StringBuilder(
+                "SELECT workflow_id, status, sum(n) FROM result_status_totals WHERE n > 0");
+        if (byRuleName) {
+            sql.append(" AND rule_name = :ruleName");
         }
-        if (Optional.ofNullable(workflowId).filter(strings -> !strings.isEmpty()).isPresent()) {
-            query = query.where(new BooleanBuilder(result.workflowId.in(workflowId)));
+        if (byWorkflowId) {
+            sql.append(" AND workflow_id IN (:workflowIds)");
         }
-        return query
-                .from(result)
-                .where(result.workflowId.isNotNull().and(result.status.isNotNull()))
-                .groupBy(result.workflowId, result.status)
-                .select(Projections.constructor(
-                        ResultCount.class,
-                        result.workflowId,
-                        result.status,
-                        result.count()
-                ))
-                .fetch();
+        Query query = entityManager.createNativeQuery(sql.append(" GROUP BY workflow_id, status").toString());
+        if (byRuleName) {
+            query.setParameter("ruleName", ruleName);
+        }
+        if (byWorkflowId) {
+            query.setParameter("workflowIds", workflowId);
+        }
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = query.getResultList();
+        return rows.stream()
+                .map(row -> new ResultCount((String) row[0], ((Number) row[1]).intValue(), ((Number) row[2]).longValue()))
+                .collect(Collectors.toList());
     }
 
     private BooleanBuilder findConditions(QResult result, Optional<Long> idIpa,
-                                          Optional<String> codiceCategoria, Optional<String> codiceFiscaleEnte,
-                                          Optional<String> codiceIpa, Optional<String> denominazioneEnte,
-                                          Optional<String> ruleName,
+                                          Optional<List<String>> codiceCategoria, Optional<String> codiceFiscaleEnte,
+                                          Optional<List<String>> codiceIpa, Optional<String> denominazioneEnte,
+                                          Optional<List<String>> ruleName,
                                           Optional<Boolean> isLeaf,
-                                          Optional<Integer> status, Optional<String> workflowId,
+                                          Optional<List<Integer>> status, Optional<List<String>> workflowId,
                                           Optional<LocalDate> createdAfter) {
         BooleanBuilder builder = new BooleanBuilder(result.id.isNotNull());
         if (idIpa.isPresent()) {
             builder.and(result.company.idIpa.eq(idIpa.get()));
         }
-        if (codiceCategoria.isPresent()) {
-            builder.and(result.company.codiceCategoria.equalsIgnoreCase(codiceCategoria.get()));
+        if (codiceCategoria.isPresent() && !codiceCategoria.get().isEmpty()) {
+            builder.and(result.company.codiceCategoria.lower().in(lowerCase(codiceCategoria.get())));
         }
         if (codiceFiscaleEnte.isPresent()) {
             builder.and(result.company.codiceFiscaleEnte.equalsIgnoreCase(codiceFiscaleEnte.get()));
         }
-        if (codiceIpa.isPresent()) {
-            builder.and(result.company.codiceIpa.equalsIgnoreCase(codiceIpa.get()));
+        if (codiceIpa.isPresent() && !codiceIpa.get().isEmpty()) {
+            builder.and(result.company.codiceIpa.lower().in(lowerCase(codiceIpa.get())));
         }
         if (denominazioneEnte.isPresent()) {
             builder.and(result.company.denominazioneEnte.containsIgnoreCase(denominazioneEnte.get()));
         }
-        if (ruleName.isPresent()) {
-            builder.and(result.ruleName.eq(ruleName.get()));
+        if (ruleName.isPresent() && !ruleName.get().isEmpty()) {
+            builder.and(result.ruleName.in(ruleName.get()));
         }
-        if (workflowId.isPresent()) {
-            builder.and(result.workflowId.eq(workflowId.get()));
+        if (workflowId.isPresent() && !workflowId.get().isEmpty()) {
+            builder.and(result.workflowId.in(workflowId.get()));
         }
         if (isLeaf.isPresent()) {
             builder.and(result.isLeaf.eq(isLeaf.get()));
         }
-        if (status.isPresent()) {
-            builder.and(result.status.eq(status.get()));
+        if (status.isPresent() && !status.get().isEmpty()) {
+            builder.and(result.status.in(status.get()));
         }
         if (createdAfter.isPresent()) {
             builder.and(result.createdAt.after(createdAfter.get().atStartOfDay()));
@@ -226,27 +579,100 @@ public class ResultDao {
         return builder;
     }
 
-    @Cacheable(RESULTS_CACHE_NAME)
-    public Page<Result> findWithCache(
+    /**
+     * I confronti case insensitive sono fatti su lower(colonna), per utilizzare
+     * gli indici sulle colonne in minuscolo.
+     */
+    private static List<String> lowerCase(List<String> values) {
+        return values.stream().map(String::toLowerCase).collect(Collectors.toList());
+    }
+
+    /**
+     * Ricerca paginata che utilizza la cache dei risultati e, per il totale degli elementi,
+     * la cache dei conteggi condivisa tra tutte le pagine della stessa ricerca.
+     */
+    @Cacheable(cacheNames = RESULTS_CACHE_NAME, keyGenerator = WorkflowScopedKeyGenerator.NAME, sync = true)
+    public Page<ResultShowDto> findWithCache(
             Optional<Long> idIpa,
-            Optional<String> codiceCategoria, Optional<String> codiceFiscaleEnte,
-            Optional<String> codiceIpa, Optional<String> denominazioneEnte,
-            Optional<String> ruleName,
+            Optional<List<String>> codiceCategoria, Optional<String> codiceFiscaleEnte,
+            Optional<List<String>> codiceIpa, Optional<String> denominazioneEnte,
+            Optional<List<String>> ruleName,
             Optional<Boolean> isLeaf,
-            Optional<Integer> status, Optional<String> workflowId,
+            Optional<List<Integer>> status, Optional<List<String>> workflowId,
             Optional<LocalDate> createdAfter,
             Pageable pageable) {
         return find(idIpa, codiceCategoria, codiceFiscaleEnte, codiceIpa, denominazioneEnte,
-                ruleName, isLeaf, status, workflowId, createdAfter, pageable);
+                ruleName, isLeaf, status, workflowId, createdAfter, pageable, true);
     }
 
-    public Page<Result> find(
+    public Page<ResultShowDto> find(
             Optional<Long> idIpa,
-            Optional<String> codiceCategoria, Optional<String> codiceFiscaleEnte,
-            Optional<String> codiceIpa, Optional<String> denominazioneEnte,
-            Optional<String> ruleName,
+            Optional<List<String>> codiceCategoria, Optional<String> codiceFiscaleEnte,
+            Optional<List<String>> codiceIpa, Optional<String> denominazioneEnte,
+            Optional<List<String>> ruleName,
             Optional<Boolean> isLeaf,
-            Optional<Integer> status, Optional<String> workflowId,
+            Optional<List<Integer>> status, Optional<List<String>> workflowId,
+            Optional<LocalDate> createdAfter,
+            Pageable pageable) {
+        return find(idIpa, codiceCategoria, codiceFiscaleEnte, codiceIpa, denominazioneEnte,
+                ruleName, isLeaf, status, workflowId, createdAfter, pageable, false);
+    }
+
+    private Page<ResultShowDto> find(
+            Optional<Long> idIpa,
+            Optional<List<String>> codiceCategoria, Optional<String> codiceFiscaleEnte,
+            Optional<List<String>> codiceIpa, Optional<String> denominazioneEnte,
+            Optional<List<String>> ruleName,
+            Optional<Boolean> isLeaf,
+            Optional<List<Integer>> status, Optional<List<String>> workflowId,
+            Optional<LocalDate> createdAfter,
+            Pageable pageable,
+            boolean cachedTotal) {
+        QResult result = QResult.result;
+        BooleanBuilder conditions =
+                findConditions(result,
+                        idIpa, codiceCategoria, codiceFiscaleEnte, codiceIpa, denominazioneEnte,
+                        ruleName, isLeaf, status, workflowId, createdAfter);
+        JPAQuery<ResultShowDto> query = new JPAQuery<ResultShowDto>(entityManager)
+                .select(ResultProjections.show())
+                .from(result)
+                .where(conditions);
+        querydsl().applyPagination(pageable, query);
+        List<ResultShowDto> content = query.fetch().stream()
+                .map(ResultProjections::withDestinationUrl)
+                .collect(Collectors.toList());
+        if (!cachedTotal) {
+            return PageableExecutionUtils.getPage(content, pageable, () -> repo.count(conditions));
+        }
+        // Il totale non dipende dalla pagina richiesta, la chiave contiene solo i filtri
+        WorkflowScopedKey totalKey = new WorkflowScopedKey(WorkflowScopedKeyGenerator.workflowIds(workflowId),
+                new SimpleKey(idIpa, codiceCategoria, codiceFiscaleEnte, codiceIpa, denominazioneEnte,
+                        ruleName, isLeaf, status, workflowId, createdAfter));
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> cachedCount(totalKey, conditions));
+    }
+
+    private long cachedCount(WorkflowScopedKey key, BooleanBuilder conditions) {
+        Cache cache = cacheManager.getCache(RESULTS_COUNT_CACHE_NAME);
+        if (cache == null) {
+            return repo.count(conditions);
+        }
+        Long total = cache.get(key, () -> repo.count(conditions));
+        return total != null ? total : 0L;
+    }
+
+    /**
+     * Ricerca dei risultati in modalità slice: viene letto un elemento in più rispetto alla
+     * dimensione della pagina per sapere se esiste una pagina successiva, senza eseguire
+     * la query di conteggio del totale.
+     */
+    public Slice<ResultShowDto> findSlice(
+            Optional<Long> idIpa,
+            Optional<List<String>> codiceCategoria, Optional<String> codiceFiscaleEnte,
+            Optional<List<String>> codiceIpa, Optional<String> denominazioneEnte,
+            Optional<List<String>> ruleName,
+            Optional<Boolean> isLeaf,
+            Optional<List<Integer>> status, Optional<List<String>> workflowId,
             Optional<LocalDate> createdAfter,
             Pageable pageable) {
         QResult result = QResult.result;
@@ -254,7 +680,151 @@ public class ResultDao {
                 findConditions(result,
                         idIpa, codiceCategoria, codiceFiscaleEnte, codiceIpa, denominazioneEnte,
                         ruleName, isLeaf, status, workflowId, createdAfter);
-        return repo.findAll(conditions.getValue(), pageable);
+        JPAQuery<ResultShowDto> query = new JPAQuery<ResultShowDto>(entityManager)
+                .select(ResultProjections.show())
+                .from(result)
+                .where(conditions);
+        querydsl().applySorting(pageable.getSort(), query);
+        if (pageable.isPaged()) {
+            query.offset(pageable.getOffset()).limit(pageable.getPageSize() + 1L);
+        }
+        List<ResultShowDto> content = query.fetch().stream()
+                .map(ResultProjections::withDestinationUrl)
+                .collect(Collectors.toList());
+        boolean hasNext = pageable.isPaged() && content.size() > pageable.getPageSize();
+        if (hasNext) {
+            content = content.subList(0, pageable.getPageSize());
+        }
+        return new SliceImpl<>(content, pageable, hasNext);
+    }
+
+    /**
+     * Ricerca dei risultati con paginazione keyset (seek). Al posto di OFFSET/LIMIT viene
+     * utilizzato un predicato di range su (chiave di ordinamento, id) a partire dall'ultimo
+     * elemento restituito, in modo che il costo di ogni pagina non dipenda dalla sua posizione.
+     *
+     * @param after cursore restituito dalla pagina precedente, vuoto per la prima pagina.
+     * @param size numero di elementi della pagina.
+     * @param sort ordinamento della prima pagina, per le pagine successive vale quello del cursore.
+     */
+    public CursorPageDto<ResultShowDto> findAfter(
+            Optional<Long> idIpa,
+            Optional<List<String>> codiceCategoria, Optional<String> codiceFiscaleEnte,
+            Optional<List<String>> codiceIpa, Optional<String> denominazioneEnte,
+            Optional<List<String>> ruleName,
+            Optional<Boolean> isLeaf,
+            Optional<List<Integer>> status, Optional<List<String>> workflowId,
+            Optional<LocalDate> createdAfter,
+            Optional<ResultCursor> after, int size, Sort sort) {
+        QResult result = QResult.result;
+        Sort.Order order = after
+                .map(cursor -> new Sort.Order(cursor.direction(), cursor.property()))
+                .orElseGet(() -> sort.stream().findFirst().orElse(Sort.Order.asc("id")));
+        if (!KEYSET_SORT_PROPERTIES.contains(order.getProperty())) {
+            throw new IllegalArgumentException(
+                    "Ordinamento non supportato con la paginazione tramite cursore: " + order.getProperty());
+        }
+        BooleanBuilder conditions =
+                findConditions(result,
+                        idIpa, codiceCategoria, codiceFiscaleEnte, codiceIpa, denominazioneEnte,
+                        ruleName, isLeaf, status, workflowId, createdAfter);
+        after.ifPresent(cursor -> conditions.and(seekCondition(result, cursor)));
+
+        boolean ascending = order.isAscending();
+        List<ResultShowDto> content = new JPAQuery<ResultShowDto>(entityManager)
+                .select(ResultProjections.show())
+                .from(result)
+                .where(conditions)
+                .orderBy(keysetOrder(result, order.getProperty(), ascending))
+                .limit(size + 1L)
+                .fetch();
+
+        String next = null;
+        if (content.size() > size) {
+            content = content.subList(0, size);
+            ResultShowDto last = content.get(size - 1);
+            next = new ResultCursor(order.getProperty(), order.getDirection(), last.getId(),
+                    keysetValue(last, order.getProperty())).encode();
+        }
+        return new CursorPageDto<>(content, size, next).map(ResultProjections::withDestinationUrl);
+    }
+
+    /**
+     * Le date null sono considerate maggiori di tutte le altre: in fondo con l'ordinamento
+     * ascendente e in testa con quello discendente, come negli indici (workflow_id, data, id).
+     */
+    private OrderSpecifier<?>[] keysetOrder(QResult result, String property, boolean ascending) {
+        OrderSpecifier<Long> idOrder = ascending ? result.id.asc() : result.id.desc();
+        return switch (property) {
+            case "createdAt" -> new OrderSpecifier<?>[] {
+                    ascending ? result.createdAt.asc().nullsLast() : result.createdAt.desc().nullsFirst(), idOrder };
+            case "updatedAt" -> new OrderSpecifier<?>[] {
+                    ascending ? result.updatedAt.asc().nullsLast() : result.updatedAt.desc().nullsFirst(), idOrder };
+            default -> new OrderSpecifier<?>[] { idOrder };
+        };
+    }
+
+    private String keysetValue(ResultShowDto last, String property) {
+        return switch (property) {
+            case "createdAt" -> last.getCreatedAt() != null ? last.getCreatedAt().toString() : NULL_KEYSET_VALUE;
+            case "updatedAt" -> last.getUpdatedAt() != null ? last.getUpdatedAt().toString() : NULL_KEYSET_VALUE;
+            default -> last.getId().toString();
+        };
+    }
+
+    private BooleanExpression seekCondition(QResult result, ResultCursor cursor) {
+        boolean ascending = cursor.direction().isAscending();
+        return switch (cursor.property()) {
+            case "createdAt" -> seekNullable(result.createdAt, parseKeysetTimestamp(cursor),
+                    result.id, cursor.id(), ascending);
+            case "updatedAt" -> seekNullable(result.updatedAt, parseKeysetTimestamp(cursor),
+                    result.id, cursor.id(), ascending);
+            case "id" -> ascending ? result.id.gt(cursor.id()) : result.id.lt(cursor.id());
+            default -> throw new IllegalArgumentException(
+                    "Ordinamento non supportato con la paginazione tramite cursore: " + cursor.property());
+        };
+    }
+
+    /**
+     * @return la data del cursore, null se l'ultimo elemento restituito non aveva la data.
+     */
+    private LocalDateTime parseKeysetTimestamp(ResultCursor cursor) {
+        if (NULL_KEYSET_VALUE.equals(cursor.value())) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(cursor.value());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursore non valido: " + cursor.encode(), e);
+        }
+    }
+
+    /**
+     * Come {@link #seek} per una chiave che può essere null, con i null maggiori di tutti
+     * gli altri valori come in {@link #keysetOrder}.
+     */
+    private static BooleanExpression seekNullable(
+            DateTimePath<LocalDateTime> key, LocalDateTime value, NumberPath<Long> id, Long lastId,
+            boolean ascending) {
+        if (value == null) {
+            BooleanExpression nulls = key.isNull().and(ascending ? id.gt(lastId) : id.lt(lastId));
+            return ascending ? nulls : nulls.or(key.isNotNull());
+        }
+        BooleanExpression range = seek(key, value, id, lastId, ascending);
+        return ascending ? range.or(key.isNull()) : range;
+    }
+
+    /**
+     * Predicato (key, id) > (value, lastId) (o < per l'ordinamento discendente). La condizione
+     * ridondante key >= value (o <=) permette a Postgres di usare l'indice come range.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static <T extends Comparable> BooleanExpression seek(
+            ComparableExpression<T> key, T value, NumberPath<Long> id, Long lastId, boolean ascending) {
+        if (ascending) {
+            return key.goe(value).and(key.gt(value).or(key.eq(value).and(id.gt(lastId))));
+        }
+        return key.loe(value).and(key.lt(value).or(key.eq(value).and(id.lt(lastId))));
     }
 
     public Long count(
@@ -273,24 +843,110 @@ public class ResultDao {
         return repo.count(builder);
     }
 
-    public List<Result> find(Optional<Long> idIpa,
-                             Optional<String> codiceCategoria, Optional<String> codiceFiscaleEnte,
-                             Optional<String> codiceIpa, Optional<String> denominazioneEnte,
-                             Optional<String> ruleName,
-                             Optional<Boolean> isLeaf,
-                             Optional<Integer> status, Optional<String> workflowId,
-                             Optional<LocalDate> createdAfter, Sort sort) {
+    /**
+     * Ricerca dei risultati selezionando solo le colonne necessarie alla proiezione
+     * passata, vedi {@link ResultProjections}.
+     */
+    public <T> List<T> find(Optional<Long> idIpa,
+                            Optional<List<String>> codiceCategoria, Optional<String> codiceFiscaleEnte,
+                            Optional<List<String>> codiceIpa, Optional<String> denominazioneEnte,
+                            Optional<List<String>> ruleName,
+                            Optional<Boolean> isLeaf,
+                            Optional<List<Integer>> status, Optional<List<String>> workflowId,
+                            Optional<LocalDate> createdAfter, Sort sort, Expression<T> projection) {
         QResult result = QResult.result;
         BooleanBuilder conditions =
                 findConditions(result,
                         idIpa, codiceCategoria, codiceFiscaleEnte, codiceIpa, denominazioneEnte, ruleName,
                         isLeaf, status, workflowId, createdAfter);
-        return StreamSupport.stream(repo.findAll(conditions.getValue(), sort).spliterator(), false)
-                .collect(Collectors.toList());
+        JPAQuery<T> query = new JPAQuery<T>(entityManager)
+                .select(projection)
+                .from(result)
+                .where(conditions);
+        querydsl().applySorting(sort, query);
+        return query.fetch();
+    }
+
+    /**
+     * Ricerca dei risultati restituiti come stream letto tramite un cursore del database
+     * con dimensione di fetch limitata, per elaborare i risultati senza caricarli
+     * tutti in memoria. Lo stream deve essere consumato e chiuso all'interno di una transazione.
+     */
+    @Transactional(readOnly = true, propagation = Propagation.MANDATORY)
+    public <T> Stream<T> stream(Optional<Long> idIpa,
+                                Optional<List<String>> codiceCategoria, Optional<String> codiceFiscaleEnte,
+                                Optional<List<String>> codiceIpa, Optional<String> denominazioneEnte,
+                                Optional<List<String>> ruleName,
+                                Optional<Boolean> isLeaf,
+                                Optional<List<Integer>> status, Optional<List<String>> workflowId,
+                                Optional<LocalDate> createdAfter, Sort sort, Expression<T> projection) {
+        QResult result = QResult.result;
+        BooleanBuilder conditions =
+                findConditions(result,
+                        idIpa, codiceCategoria, codiceFiscaleEnte, codiceIpa, denominazioneEnte, ruleName,
+                        isLeaf, status, workflowId, createdAfter);
+        JPAQuery<T> query = new JPAQuery<T>(entityManager)
+                .select(projection)
+                .from(result)
+                .where(conditions);
+        query.setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE);
+        querydsl().applySorting(sort, query);
+        return query.stream();
     }
 
+    /**
+     * Stati dei risultati del flusso, letti con un cursore del database nell'ordine dell'indice
+     * univoco (workflow_id, rule_name, id_ipa). Sono esclusi i risultati senza regola o senza
+     * idIpa, che non sono confrontabili tra flussi diversi.
+     * Lo stream deve essere consumato e chiuso all'interno di una transazione.
+     */
+    @Transactional(readOnly = true, propagation = Propagation.MANDATORY)
+    public Stream<ResultStatusRow> streamStatuses(String workflowId) {
+        QResult result = QResult.result;
+        JPAQuery<ResultStatusRow> query = new JPAQuery<ResultStatusRow>(entityManager)
+                .select(Projections.constructor(ResultStatusRow.class,
+                        result.ruleName, result.company.idIpa, result.company.codiceIpa,
+                        result.company.denominazioneEnte, result.status))
+                .from(result)
+                .where(result.workflowId.eq(workflowId)
+                        .and(result.ruleName.isNotNull())
+                        .and(result.company.idIpa.isNotNull()))
+                .orderBy(result.ruleName.asc(), result.company.idIpa.asc());
+        query.setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE);
+        return query.stream();
+    }
+
+    /**
+     * @return i nomi delle regole dei risultati dei flussi indicati, nell'ordine del database.
+     */
+    public List<String> ruleNames(Collection<String> workflowIds) {
+        QResult result = QResult.result;
+        return new JPAQuery<String>(entityManager)
+                .select(result.ruleName)
+                .distinct()
+                .from(result)
+                .where(result.workflowId.in(workflowIds).and(result.ruleName.isNotNull()))
+                .orderBy(result.ruleName.asc())
+                .fetch();
+    }
+
+    private Querydsl querydsl() {
+        return new Querydsl(entityManager, new PathBuilderFactory().create(Result.class));
+    }
+
+    /**
+     * @return i riferimenti agli oggetti nello storage dei risultati del flusso, solo per
+     * i risultati che hanno almeno un oggetto salvato.
+     */
     public List<StorageData> storageDataByWorkflowId(String workflowId) {
-        return repo.findByWorkflowIdAndStorageDataNotEmpty(workflowId)
-                .stream().map(r -> r.getStorageData()).collect(Collectors.toList());
+        QResult result = QResult.result;
+        QStorageData storageData = result.storageData;
+        return new JPAQuery<StorageData>(entityManager)
+                .select(storageData)
+                .from(result)
+                .where(result.workflowId.eq(workflowId)
+                        .and(storageData.objectBucket.isNotEmpty()
+                                .or(storageData.screenshotBucket.isNotEmpty())))
+                .fetch();
     }
 }
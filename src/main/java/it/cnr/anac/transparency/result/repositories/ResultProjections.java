@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.repositories;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.QBean;
+import it.cnr.anac.transparency.result.models.QCompany;
+import it.cnr.anac.transparency.result.models.QResult;
+import it.cnr.anac.transparency.result.models.QStorageData;
+import it.cnr.anac.transparency.result.utils.UrlResolver;
+import it.cnr.anac.transparency.result.v1.dto.CompanyShowCsvDto;
+import it.cnr.anac.transparency.result.v1.dto.CompanyShowDto;
+import it.cnr.anac.transparency.result.v1.dto.CompanyShowTerseCsvDto;
+import it.cnr.anac.transparency.result.v1.dto.ResultCsvDto;
+import it.cnr.anac.transparency.result.v1.dto.ResultCsvTerseDto;
+import it.cnr.anac.transparency.result.v1.dto.ResultShowDto;
+import it.cnr.anac.transparency.result.v1.dto.StorageDataShowDto;
+
+/**
+ * Proiezioni QueryDsl che costruiscono direttamente i DTO dei risultati selezionando
+ * solo le colonne necessarie a ciascun DTO, senza istanziare le entity Result e senza
+ * che siano gestite dal persistence context.
+ */
+public final class ResultProjections {
+
+  private static final QResult result = QResult.result;
+
+  private ResultProjections() {
+  }
+
+  /**
+   * Proiezione nel DTO di visualizzazione, il campo destinationUrl va calcolato
+   * con {@link #withDestinationUrl(ResultShowDto)}.
+   */
+  public static QBean<ResultShowDto> show() {
+    return Projections.fields(ResultShowDto.class,
+        result.id,
+        Projections.fields(CompanyShowDto.class, companyFields(result.company)).as("company"),
+        result.realUrl,
+        storageData(result.storageData),
+        result.url, result.ruleName, result.term, result.content, result.isLeaf,
+        result.status, result.score, result.workflowId, result.workflowChildId,
+        result.errorMessage, result.length, result.where,
+        result.createdAt, result.updatedAt);
+  }
+
+  /**
+   * Proiezione nel DTO per l'esportazione CSV completa, il campo destinationUrl va calcolato
+   * con {@link #withDestinationUrl(ResultCsvDto)}.
+   */
+  public static QBean<ResultCsvDto> csv() {
+    return Projections.fields(ResultCsvDto.class,
+        result.id,
+        Projections.fields(CompanyShowCsvDto.class, companyFields(result.company)).as("company"),
+        result.realUrl,
+        storageData(result.storageData),
+        result.url, result.ruleName, result.term, result.content, result.isLeaf,
+        result.status, result.score, result.workflowId, result.workflowChildId,
+        result.errorMessage, result.length, result.where,
+        result.createdAt, result.updatedAt);
+  }
+
+  /**
+   * Proiezione nel DTO per l'esportazione CSV sintetica: non vengono lette le informazioni
+   * sullo storage, l'url, il messaggio di errore e la posizione del termine.
+   */
+  public static QBean<ResultCsvTerseDto> csvTerse() {
+    QCompany company = result.company;
+    return Projections.fields(ResultCsvTerseDto.class,
+        result.id,
+        Projections.fields(CompanyShowTerseCsvDto.class,
+            company.codiceIpa, company.codiceCategoria, company.codiceFiscaleEnte,
+            company.denominazioneEnte, company.tipologia, company.codiceNatura,
+            company.acronimo, company.sitoIstituzionale).as("company"),
+        result.ruleName, result.term, result.content, result.realUrl,
+        result.createdAt, result.updatedAt, result.status);
+  }
+
+  public static ResultShowDto withDestinationUrl(ResultShowDto dto) {
+    dto.setDestinationUrl(UrlResolver.getDestinationUrl(dto.getRealUrl(), dto.getUrl()));
+    return dto;
+  }
+
+  public static ResultCsvDto withDestinationUrl(ResultCsvDto dto) {
+    dto.setDestinationUrl(UrlResolver.getDestinationUrl(dto.getRealUrl(), dto.getUrl()).orElse(null));
+    return dto;
+  }
+
+  private static Expression<?>[] companyFields(QCompany company) {
+    return new Expression<?>[] {
+        company.idIpa, company.codiceIpa, company.codiceCategoria, company.codiceFiscaleEnte,
+        company.denominazioneEnte, company.tipologia, company.codiceNatura, company.acronimo,
+        company.sitoIstituzionale, company.sorgente };
+  }
+
+  private static Expression<StorageDataShowDto> storageData(QStorageData storageData) {
+    return Projections.fields(StorageDataShowDto.class,
+        storageData.objectBucket, storageData.objectId, storageData.objectResult,
+        storageData.screenshotBucket, storageData.screenshotId, storageData.screenshotResult)
+        .as("storageData");
+  }
+}
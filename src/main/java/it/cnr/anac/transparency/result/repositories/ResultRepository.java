@@ -16,10 +16,7 @@
  */
 package it.cnr.anac.transparency.result.repositories;
 
-import java.util.List;
-
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
 
 import it.cnr.anac.transparency.result.models.Result;
@@ -30,10 +27,4 @@ public interface ResultRepository extends JpaRepository<Result,Long>, QuerydslPr
   @Transactional
   public long deleteByWorkflowId(String workflowId);
 
-  @Query("SELECT r FROM Result r "
-      + "WHERE r.workflowId = ?1 AND "
-      + "((r.storageData.objectBucket IS NOT NULL AND r.storageData.objectBucket <> '') "
-      + "OR (r.storageData.screenshotBucket IS NOT NULL AND r.storageData.screenshotBucket <> ''))")
-  public List<Result> findByWorkflowIdAndStorageDataNotEmpty(String workflowId);
-
 }
\ No newline at end of file
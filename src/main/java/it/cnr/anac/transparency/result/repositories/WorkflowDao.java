@@ -21,15 +21,20 @@ import it.cnr.anac.transparency.result.models.QWorkflow;
 import it.cnr.anac.transparency.result.models.Workflow;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 /**
- * DAO per le ricerche sui workflow.
+ * DAO per le ricerche sui workflow, eseguite in transazioni in sola lettura.
  */
+@Transactional(readOnly = true)
 @RequiredArgsConstructor
 @Component
 public class WorkflowDao {
@@ -68,4 +73,15 @@ public class WorkflowDao {
         assert conditions.getValue() != null;
         return repo.findAll(conditions.getValue(), pageable);
     }
+
+    /**
+     * @return gli id degli ultimi flussi completati, dal più recente.
+     */
+    public List<String> lastCompletedWorkflowIds(int limit) {
+        QWorkflow workflow = QWorkflow.workflow;
+        return repo.findAll(workflow.status.eq(Workflow.WorkflowStatus.COMPLETED),
+                        PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "updatedAt")))
+                .map(Workflow::getWorkflowId)
+                .getContent();
+    }
 }
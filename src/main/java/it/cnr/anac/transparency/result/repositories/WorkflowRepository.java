@@ -17,20 +17,21 @@
 package it.cnr.anac.transparency.result.repositories;
 
 import it.cnr.anac.transparency.result.models.Workflow;
-import jakarta.transaction.Transactional;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 public interface WorkflowRepository extends JpaRepository<Workflow,Long>, QuerydslPredicateExecutor<Workflow> {
 
+  @Transactional(readOnly = true)
   List<Workflow> findByCodiceIpa(String codiceIpa);
 
   @Transactional
   long deleteByWorkflowId(String workflowId);
 
-  @Transactional
+  @Transactional(readOnly = true)
   Workflow findByWorkflowId(String workflowId);
 
 }
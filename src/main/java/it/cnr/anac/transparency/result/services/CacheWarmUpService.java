@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import it.cnr.anac.transparency.result.config.WarmUpProperties;
+import it.cnr.anac.transparency.result.events.WorkflowChangedEvent;
+import it.cnr.anac.transparency.result.repositories.ResultDao;
+import it.cnr.anac.transparency.result.repositories.WorkflowDao;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Preriscaldamento delle cache dei risultati: al completamento di un flusso e all'avvio
+ * dell'applicazione calcola in background i raggruppamenti per stato e per categoria e le
+ * prime pagine della lista dei risultati, in modo che i primi utenti non ne paghino il costo.
+ * Le operazioni sono eseguite da un unico thread, con una pausa configurabile tra l'una e
+ * l'altra, per non sottrarre connessioni e CPU al traffico.
+ * L'avanzamento è esposto nelle metriche cache.warmup.*.
+ * Sono preriscaldate solo le cache dei DAO e non quella delle risposte serializzate di
+ * {@link it.cnr.anac.transparency.result.config.ResponseCacheFilter}, la cui chiave dipende
+ * dall'URL esatto richiesto dal client: la prima richiesta di ogni URL risulta quindi MISS
+ * nella cache delle risposte, ma non esegue le query e ne paga solo la serializzazione.
+ */
+@Slf4j
+@Service
+@EnableConfigurationProperties(WarmUpProperties.class)
+public class CacheWarmUpService {
+
+  private final ResultDao resultDao;
+  private final WorkflowDao workflowDao;
+  private final WarmUpProperties properties;
+
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "cache-warmup");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    return thread;
+  });
+
+  // Flussi con un preriscaldamento in coda o in corso
+  private final Set<String> scheduled = ConcurrentHashMap.newKeySet();
+  private final AtomicInteger pendingTasks = new AtomicInteger();
+
+  private final Counter completedTasks;
+  private final Counter failedTasks;
+  private final Timer taskTimer;
+
+  public CacheWarmUpService(ResultDao resultDao, WorkflowDao workflowDao, WarmUpProperties properties,
+      MeterRegistry meterRegistry) {
+    this.resultDao = resultDao;
+    this.workflowDao = workflowDao;
+    this.properties = properties;
+    Gauge.builder("cache.warmup.pending", pendingTasks, AtomicInteger::get)
+        .description("Operazioni di preriscaldamento delle cache in attesa")
+        .register(meterRegistry);
+    this.completedTasks = Counter.builder("cache.warmup.tasks").tag("outcome", "success")
+        .register(meterRegistry);
+    this.failedTasks = Counter.builder("cache.warmup.tasks").tag("outcome", "failure")
+        .register(meterRegistry);
+    this.taskTimer = Timer.builder("cache.warmup.task.duration").register(meterRegistry);
+  }
+
+  /**
+   * Accoda il preriscaldamento quando il flusso diventa completato, non a ogni aggiornamento
+   * di un flusso già completato.
+   */
+  @EventListener
+  public void onWorkflowChanged(WorkflowChangedEvent event) {
+    if (properties.isEnabled() && event.completed()) {
+      warmUp(List.of(event.workflowId()));
+    }
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void onApplicationReady() {
+    if (properties.isEnabled() && properties.getStartupWorkflows() > 0) {
+      executor.execute(() -> {
+        try {
+          warmUp(workflowDao.lastCompletedWorkflowIds(properties.getStartupWorkflows()));
+        } catch (RuntimeException e) {
+          log.warn("Impossibile individuare i flussi da preriscaldare all'avvio", e);
+        }
+      });
+    }
+  }
+
+  /**
+   * Accoda il preriscaldamento delle cache dei flussi indicati, i flussi già in coda
+   * sono ignorati.
+   */
+  public void warmUp(Collection<String> workflowIds) {
+    for (String workflowId : workflowIds) {
+      if (workflowId == null || !scheduled.add(workflowId)) {
+        continue;
+      }
+      List<Runnable> tasks = plan(workflowId);
+      log.info("Preriscaldamento delle cache del flusso {}: {} operazioni", workflowId, tasks.size());
+      for (int i = 0; i < tasks.size(); i++) {
+        boolean last = i == tasks.size() - 1;
+        Runnable task = tasks.get(i);
+        pendingTasks.incrementAndGet();
+        executor.execute(() -> {
+          try {
+            run(task);
+          } finally {
+            if (last) {
+              scheduled.remove(workflowId);
+            }
+          }
+        });
+      }
+    }
+  }
+
+  /**
+   * @return le operazioni che popolano le cache per il flusso, con gli stessi parametri
+   *     utilizzati dalle API in assenza dei parametri opzionali.
+   */
+  private List<Runnable> plan(String workflowId) {
+    List<Runnable> tasks = new ArrayList<>();
+    tasks.add(() -> resultDao.countAndGroupByWorkflowIdAndStatusWithCache(null, List.of(workflowId)));
+    for (String statuses : properties.getCategoryStatuses()) {
+      Set<Integer> status = Arrays.stream(statuses.split(","))
+          .map(String::trim).filter(s -> !s.isEmpty()).map(Integer::valueOf).collect(Collectors.toSet());
+      tasks.add(() -> resultDao.countResultsAndGroupByCategoriesWidthWorkflowIdAndStatusWithCache(
+          workflowId, status));
+    }
+    Sort sort = sort(properties.getSort());
+    for (int page = 0; page < properties.getPages(); page++) {
+      Pageable pageable = PageRequest.of(page, properties.getPageSize(), sort);
+      tasks.add(() -> resultDao.findWithCache(Optional.empty(), Optional.empty(), Optional.empty(),
+          Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(),
+          Optional.of(List.of(workflowId)), Optional.empty(), pageable));
+    }
+    return tasks;
+  }
+
+  private void run(Runnable task) {
+    try {
+      taskTimer.record(task);
+      completedTasks.increment();
+    } catch (RuntimeException e) {
+      failedTasks.increment();
+      log.warn("Operazione di preriscaldamento delle cache fallita", e);
+    } finally {
+      pendingTasks.decrementAndGet();
+    }
+    try {
+      Thread.sleep(properties.getPause().toMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Converte l'ordinamento nel formato del parametro sort delle API (proprietà e direzione
+   * opzionale separate da virgola).
+   */
+  private static Sort sort(List<String> values) {
+    Sort sort = Sort.unsorted();
+    for (String value : values) {
+      String[] parts = value.split(",");
+      Sort.Direction direction = parts.length > 1
+          ? Sort.Direction.fromOptionalString(parts[1].trim()).orElse(Sort.Direction.ASC)
+          : Sort.Direction.ASC;
+      sort = sort.and(Sort.by(direction, parts[0].trim()));
+    }
+    return sort;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+}
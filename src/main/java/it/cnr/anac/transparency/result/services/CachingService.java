@@ -16,10 +16,21 @@
  */
 package it.cnr.anac.transparency.result.services;
 
+import java.util.List;
+import java.util.Map;
+
+import it.cnr.anac.transparency.result.config.CacheEvictions;
+import it.cnr.anac.transparency.result.config.RefreshAheadCache;
+import it.cnr.anac.transparency.result.config.ResponseCacheFilter;
+import it.cnr.anac.transparency.result.events.ResultsChangedEvent;
+import it.cnr.anac.transparency.result.events.WorkflowChangedEvent;
 import it.cnr.anac.transparency.result.repositories.ResultDao;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
@@ -33,15 +44,124 @@ import org.springframework.stereotype.Service;
 @Service
 public class CachingService {
 
-  @CacheEvict(value = ResultDao.RESULTS_CACHE_NAME, allEntries = true)
+  /**
+   * Cache le cui chiavi sono di tipo {@link WorkflowScopedKey}.
+   */
+  private static final List<String> WORKFLOW_SCOPED_CACHES = List.of(
+      ResultDao.RESULTS_CACHE_NAME, ResultDao.RESULTS_COUNT_CACHE_NAME,
+      ResultDao.RESULTS_GROUPED_BY_CACHE_NAME, ResponseCacheFilter.RESPONSES_CACHE_NAME);
+
+  private final CacheManager cacheManager;
+
+  private final CacheEvictions evictions;
+
+  /**
+   * Se false lo svuotamento periodico delle cache è disabilitato, per esempio quando
+   * l'invalidazione tra le istanze tramite Postgres è attiva.
+   */
+  @Value("${caching.scheduled-flush.enabled:true}")
+  private boolean scheduledFlushEnabled;
+
   @Scheduled(fixedRateString = "${caching.spring.results}")
   public void evictResultsCachesAtIntervals() {
-    log.info("Svuota la cache dei risultati");
+    if (scheduledFlushEnabled) {
+      log.info("Svuota la cache dei risultati");
+      clear(ResultDao.RESULTS_CACHE_NAME, ResultDao.RESULTS_COUNT_CACHE_NAME,
+          ResponseCacheFilter.RESPONSES_CACHE_NAME);
+    }
   }
 
-  @CacheEvict(value = ResultDao.RESULTS_GROUPED_BY_CACHE_NAME, allEntries = true)
+  /**
+   * Se la cache dei risultati aggregati è ad aggiornamento anticipato non viene svuotata:
+   * i valori sono ricalcolati in background e restano comunque entro la loro scadenza.
+   */
   @Scheduled(fixedRateString = "${caching.spring.results}")
   public void evictResultsGroupedByCachesAtIntervals() {
-    log.info("Svuota la cache dei risultati aggregati");
+    if (scheduledFlushEnabled
+        && !(cacheManager.getCache(ResultDao.RESULTS_GROUPED_BY_CACHE_NAME) instanceof RefreshAheadCache)) {
+      log.info("Svuota la cache dei risultati aggregati");
+      clear(ResultDao.RESULTS_GROUPED_BY_CACHE_NAME);
+    }
+  }
+
+  /**
+   * Svuota tutte le cache dei risultati.
+   */
+  public void evictAll() {
+    log.info("Svuota tutte le cache dei risultati");
+    clear(WORKFLOW_SCOPED_CACHES.toArray(String[]::new));
+  }
+
+  private void clear(String... cacheNames) {
+    evictions.evictedAll();
+    for (String cacheName : cacheNames) {
+      Cache cache = cacheManager.getCache(cacheName);
+      if (cache != null) {
+        cache.clear();
+      }
+    }
+  }
+
+  @EventListener
+  public void onResultsChanged(ResultsChangedEvent event) {
+    evictWorkflow(event.workflowId());
+  }
+
+  @EventListener
+  public void onWorkflowChanged(WorkflowChangedEvent event) {
+    if (event.deleted()) {
+      evictWorkflow(event.workflowId());
+    }
+  }
+
+  /**
+   * Elimina dalle cache dei risultati solo i valori che dipendono dal flusso indicato,
+   * compresi quelli delle ricerche senza filtro sul flusso. I valori degli altri flussi
+   * restano in cache.
+   *
+   * @return il numero di valori eliminati.
+   */
+  public int evictWorkflow(String workflowId) {
+    if (workflowId == null) {
+      return 0;
+    }
+    evictions.evictedWorkflow(workflowId);
+    int evicted = 0;
+    for (String cacheName : WORKFLOW_SCOPED_CACHES) {
+      Cache cache = cacheManager.getCache(cacheName);
+      if (cache == null) {
+        continue;
+      }
+      Map<?, ?> entries = nativeEntries(cache);
+      if (entries == null) {
+        // Le chiavi non sono enumerabili, non resta che svuotare la cache
+        cache.clear();
+        continue;
+      }
+      List<?> keys = entries.keySet().stream()
+          .filter(key -> !(key instanceof WorkflowScopedKey scopedKey) || scopedKey.dependsOn(workflowId))
+          .toList();
+      keys.forEach(cache::evict);
+      evicted += keys.size();
+    }
+    log.debug("Eliminati dalle cache {} valori dipendenti dal flusso {}", evicted, workflowId);
+    return evicted;
+  }
+
+  /**
+   * @return la generazione delle eliminazioni che riguardano il valore con la chiave indicata,
+   *     utilizzata per non memorizzare in cache valori calcolati durante una modifica dei
+   *     flussi da cui dipendono.
+   */
+  public long evictions(Object key) {
+    return evictions.current(key);
+  }
+
+  private static Map<?, ?> nativeEntries(Cache cache) {
+    Object nativeCache = cache.getNativeCache();
+    if (nativeCache instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeineCache) {
+      return caffeineCache.asMap();
+    }
+    return nativeCache instanceof Map<?, ?> map ? map : null;
   }
-}
\ No newline at end of file
+}
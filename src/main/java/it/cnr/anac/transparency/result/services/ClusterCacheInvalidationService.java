@@ -0,0 +1,188 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.services;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.UUID;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import it.cnr.anac.transparency.result.config.ReadYourWritesTracker;
+import it.cnr.anac.transparency.result.events.ResultsChangedEvent;
+import it.cnr.anac.transparency.result.events.WorkflowChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Invalidazione delle cache tra più istanze del servizio tramite LISTEN/NOTIFY di Postgres.
+ * Alla modifica dei risultati di un flusso viene inviata una notifica con l'id del flusso,
+ * le altre istanze la ricevono su una connessione del pool riservata all'ascolto ed eliminano
+ * dalle proprie cache i valori che dipendono dal flusso.
+ * Se la connessione di ascolto si interrompe, al ripristino tutte le cache vengono svuotate
+ * perché le notifiche inviate nel frattempo sono perse.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "caching.invalidation", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ClusterCacheInvalidationService implements SmartLifecycle {
+
+  private static final String SEPARATOR = ":";
+  private static final int POLL_TIMEOUT_MILLIS = 10_000;
+
+  // Identifica l'istanza, per ignorare le proprie notifiche
+  private final String instanceId = UUID.randomUUID().toString();
+
+  private final CachingService cachingService;
+  // Presente solo se le letture sono indirizzate a una replica
+  private final ObjectProvider<ReadYourWritesTracker> readYourWritesTracker;
+  private final JdbcTemplate jdbcTemplate;
+  private final DataSource dataSource;
+  private final String channel;
+  private final Duration reconnectDelay;
+
+  private volatile boolean running;
+  private Thread listener;
+
+  public ClusterCacheInvalidationService(CachingService cachingService,
+      ObjectProvider<ReadYourWritesTracker> readYourWritesTracker, JdbcTemplate jdbcTemplate,
+      DataSource dataSource,
+      @Value("${caching.invalidation.channel:result_cache_invalidation}") String channel,
+      @Value("${caching.invalidation.reconnect-delay:5s}") Duration reconnectDelay) {
+    this.cachingService = cachingService;
+    this.readYourWritesTracker = readYourWritesTracker;
+    this.jdbcTemplate = jdbcTemplate;
+    this.dataSource = dataSource;
+    if (!channel.matches("[a-z_][a-z0-9_]*")) {
+      throw new IllegalArgumentException("Nome del canale di invalidazione non valido: " + channel);
+    }
+    this.channel = channel;
+    this.reconnectDelay = reconnectDelay;
+  }
+
+  @EventListener
+  public void onResultsChanged(ResultsChangedEvent event) {
+    notify(event.workflowId());
+  }
+
+  @EventListener
+  public void onWorkflowChanged(WorkflowChangedEvent event) {
+    if (event.deleted()) {
+      notify(event.workflowId());
+    }
+  }
+
+  private void notify(String workflowId) {
+    if (workflowId == null) {
+      return;
+    }
+    try {
+      jdbcTemplate.queryForList("SELECT pg_notify(?, ?)", channel, instanceId + SEPARATOR + workflowId);
+    } catch (RuntimeException e) {
+      log.warn("Impossibile notificare alle altre istanze la modifica del flusso {}", workflowId, e);
+    }
+  }
+
+  @Override
+  public void start() {
+    running = true;
+    listener = new Thread(this::listen, "cache-invalidation-listener");
+    listener.setDaemon(true);
+    listener.start();
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+    if (listener != null) {
+      listener.interrupt();
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return running;
+  }
+
+  private void listen() {
+    boolean reconnecting = false;
+    while (running) {
+      // La connessione resta in uso per tutta la durata dell'ascolto
+      try (Connection connection = dataSource.getConnection()) {
+        if (!connection.isWrapperFor(PGConnection.class)) {
+          log.warn("Il database non è Postgres, invalidazione delle cache tra le istanze disabilitata");
+          running = false;
+          break;
+        }
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        try (Statement statement = connection.createStatement()) {
+          statement.execute("LISTEN " + channel);
+        }
+        log.info("In ascolto delle invalidazioni delle cache sul canale {}", channel);
+        if (reconnecting) {
+          readYourWritesTracker.ifAvailable(ReadYourWritesTracker::recordSharedWrite);
+          cachingService.evictAll();
+        }
+        while (running) {
+          PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MILLIS);
+          if (notifications != null) {
+            for (PGNotification notification : notifications) {
+              handle(notification.getParameter());
+            }
+          }
+        }
+      } catch (SQLException e) {
+        if (!running) {
+          break;
+        }
+        log.warn("Connessione di ascolto delle invalidazioni interrotta, nuovo tentativo tra {}: {}",
+            reconnectDelay, e.getMessage());
+        reconnecting = true;
+        try {
+          Thread.sleep(reconnectDelay.toMillis());
+        } catch (InterruptedException interrupted) {
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+    }
+  }
+
+  private void handle(String payload) {
+    int separator = payload.indexOf(SEPARATOR);
+    if (separator < 0 || payload.substring(0, separator).equals(instanceId)) {
+      return;
+    }
+    String workflowId = payload.substring(separator + 1);
+    // I valori ricalcolati dopo l'eliminazione sono letti dal database principale, la replica
+    // potrebbe non avere ancora ricevuto la scrittura dell'altra istanza
+    readYourWritesTracker.ifAvailable(ReadYourWritesTracker::recordSharedWrite);
+    int evicted = cachingService.evictWorkflow(workflowId);
+    log.debug("Ricevuta l'invalidazione del flusso {}, eliminati {} valori dalle cache", workflowId, evicted);
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.services;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import it.cnr.anac.transparency.result.repositories.ResultDao;
+import it.cnr.anac.transparency.result.v1.dto.CompanyHistoryDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Storico degli stati delle regole per codice IPA negli ultimi flussi completati.
+ * Lo storico è in cache per codice IPA e la chiave contiene la versione dei dati dei flussi
+ * completati, che cambia quando un nuovo flusso viene completato: non è quindi necessaria
+ * un'invalidazione esplicita, neanche tra più istanze, e i valori superati scadono dalla cache.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Service
+public class CompanyHistoryService {
+
+  private final ResultDao resultDao;
+  private final DataVersionService dataVersionService;
+  private final CacheManager cacheManager;
+
+  /**
+   * @param workflows numero massimo di flussi completati per codice IPA.
+   * @return lo storico di ciascun codice IPA, nello stesso ordine della richiesta.
+   */
+  @Transactional(readOnly = true)
+  public List<CompanyHistoryDto> history(Collection<String> codiciIpa, int workflows) {
+    String version = dataVersionService.completedVersion().stamp();
+    Cache cache = cacheManager.getCache(ResultDao.RESULTS_HISTORY_CACHE_NAME);
+    Map<String, CompanyHistoryDto> histories = new LinkedHashMap<>();
+    List<String> missing = new ArrayList<>();
+    for (String codiceIpa : codiciIpa) {
+      CompanyHistoryDto cached = cache != null
+          ? cache.get(new SimpleKey(codiceIpa, workflows, version), CompanyHistoryDto.class) : null;
+      histories.put(codiceIpa, cached);
+      if (cached == null) {
+        missing.add(codiceIpa);
+      }
+    }
+    if (!missing.isEmpty()) {
+      Map<String, CompanyHistoryDto> computed = toHistories(resultDao.statusHistory(missing, workflows));
+      for (String codiceIpa : missing) {
+        CompanyHistoryDto history = computed.getOrDefault(codiceIpa,
+            new CompanyHistoryDto(codiceIpa, List.of(), Map.of()));
+        histories.put(codiceIpa, history);
+        if (cache != null) {
+          cache.put(new SimpleKey(codiceIpa, workflows, version), history);
+        }
+      }
+    }
+    log.debug("Storico di {} codici IPA, {} calcolati", codiciIpa.size(), missing.size());
+    return new ArrayList<>(histories.values());
+  }
+
+  /**
+   * Costruisce le matrici flusso × regola dalle righe ordinate per codice IPA e flusso.
+   */
+  private static Map<String, CompanyHistoryDto> toHistories(List<Object[]> rows) {
+    Map<String, CompanyHistoryDto> histories = new HashMap<>();
+    // Stati per codice IPA e regola, indicizzati per posizione del flusso
+    Map<String, Map<String, Map<Integer, Integer>>> statuses = new HashMap<>();
+    for (Object[] row : rows) {
+      String codiceIpa = (String) row[0];
+      String workflowId = (String) row[1];
+      CompanyHistoryDto history = histories.computeIfAbsent(codiceIpa,
+          key -> new CompanyHistoryDto(key, new ArrayList<>(), new LinkedHashMap<>()));
+      List<CompanyHistoryDto.WorkflowRun> runs = history.getWorkflows();
+      if (runs.isEmpty() || !runs.get(runs.size() - 1).getWorkflowId().equals(workflowId)) {
+        runs.add(new CompanyHistoryDto.WorkflowRun(workflowId, toLocalDateTime(row[2])));
+      }
+      statuses.computeIfAbsent(codiceIpa, key -> new LinkedHashMap<>())
+          .computeIfAbsent((String) row[3], key -> new HashMap<>())
+          .put(runs.size() - 1, row[4] != null ? ((Number) row[4]).intValue() : null);
+    }
+    histories.forEach((codiceIpa, history) -> {
+      int size = history.getWorkflows().size();
+      statuses.get(codiceIpa).forEach((ruleName, byPosition) -> {
+        Integer[] values = new Integer[size];
+        byPosition.forEach((position, status) -> values[position] = status);
+        history.getStatuses().put(ruleName, Arrays.asList(values));
+      });
+    });
+    return histories;
+  }
+
+  private static LocalDateTime toLocalDateTime(Object value) {
+    return value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+  }
+}
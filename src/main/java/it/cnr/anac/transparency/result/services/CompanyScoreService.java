@@ -0,0 +1,333 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.services;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import it.cnr.anac.transparency.result.config.RuleCategoryProperties;
+import it.cnr.anac.transparency.result.config.ScorecardProperties;
+import it.cnr.anac.transparency.result.events.ResultsChangedEvent;
+import it.cnr.anac.transparency.result.events.WorkflowChangedEvent;
+import it.cnr.anac.transparency.result.models.Workflow;
+import it.cnr.anac.transparency.result.v1.dto.RuleDto;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Mantiene aggiornata la tabella company_workflow_score con il punteggio di ciascun ente
+ * per flusso. I punteggi degli enti sono ricalcolati in background dopo il caricamento dei
+ * loro risultati, raggruppando i caricamenti dello stesso flusso arrivati nel frattempo, e il
+ * punteggio dell'intero flusso è ricalcolato e consolidato, sempre in background, al suo
+ * completamento.
+ */
+@Slf4j
+@Service
+@EnableConfigurationProperties(ScorecardProperties.class)
+@ConditionalOnProperty(prefix = "scorecard", name = "enabled", matchIfMissing = true)
+public class CompanyScoreService {
+
+  /**
+   * Numero massimo di codici IPA passati in una singola query di ricalcolo.
+   */
+  private static final int CHUNK_SIZE = 5000;
+
+  private static final String UPSERT =
+      "INSERT INTO company_workflow_score (workflow_id, id_ipa, codice_ipa, denominazione_ente, "
+      + "codice_categoria, passed, failed, status_counts, category, finalized, updated_at) "
+      + "SELECT workflow_id, id_ipa, codice_ipa, denominazione_ente, codice_categoria, passed, failed, "
+      + "status_counts, %s, "
+      + "EXISTS (SELECT 1 FROM workflows w WHERE w.workflow_id = :workflowId AND w.status = :completed), "
+      + ":now FROM ("
+      + "SELECT workflow_id, id_ipa, max(codice_ipa) AS codice_ipa, "
+      + "max(denominazione_ente) AS denominazione_ente, max(codice_categoria) AS codice_categoria, "
+      + "coalesce(sum(n) FILTER (WHERE status IN (:passed)), 0) AS passed, "
+      + "coalesce(sum(n) FILTER (WHERE status NOT IN (:passed)), 0) AS failed, "
+      + "jsonb_object_agg(status, n) AS status_counts FROM ("
+      + "SELECT workflow_id, id_ipa, status, max(codice_ipa) AS codice_ipa, "
+      + "max(denominazione_ente) AS denominazione_ente, max(codice_categoria) AS codice_categoria, "
+      + "count(*) AS n FROM results "
+      + "WHERE workflow_id = :workflowId AND id_ipa IS NOT NULL AND status IS NOT NULL %s"
+      + "GROUP BY workflow_id, id_ipa, status) by_status "
+      + "GROUP BY workflow_id, id_ipa) scores "
+      + "ON CONFLICT (workflow_id, id_ipa) DO UPDATE SET codice_ipa = EXCLUDED.codice_ipa, "
+      + "denominazione_ente = EXCLUDED.denominazione_ente, codice_categoria = EXCLUDED.codice_categoria, "
+      + "passed = EXCLUDED.passed, failed = EXCLUDED.failed, status_counts = EXCLUDED.status_counts, "
+      + "category = EXCLUDED.category, finalized = EXCLUDED.finalized, updated_at = EXCLUDED.updated_at";
+
+  private static final String PENDING_WORKFLOWS =
+      "SELECT w.workflow_id FROM workflows w WHERE w.status = :completed AND NOT EXISTS ("
+      + "SELECT 1 FROM company_workflow_score s WHERE s.workflow_id = w.workflow_id AND s.finalized) "
+      + "AND EXISTS (SELECT 1 FROM results r WHERE r.workflow_id = w.workflow_id) "
+      + "ORDER BY w.updated_at DESC";
+
+  /**
+   * Chiave dei lock advisory del calcolo all'avvio, combinata con l'hash del flusso.
+   */
+  private static final int BACKFILL_LOCK = 0x5c02e;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  private final ScorecardProperties properties;
+  private final RuleCategoryProperties ruleCategoryProperties;
+  private final TransactionTemplate transactionTemplate;
+
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "company-score-backfill");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MIN_PRIORITY);
+    return thread;
+  });
+
+  private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "company-score-refresh");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /**
+   * Codici IPA da ricalcolare per flusso, in attesa del thread di ricalcolo.
+   */
+  private final Map<String, Set<String>> pending = new ConcurrentHashMap<>();
+
+  public CompanyScoreService(ScorecardProperties properties, RuleCategoryProperties ruleCategoryProperties,
+      PlatformTransactionManager transactionManager) {
+    this.properties = properties;
+    this.ruleCategoryProperties = ruleCategoryProperties;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+  }
+
+  /**
+   * Consolida i punteggi quando il flusso diventa completato e li elimina con il flusso, dopo
+   * il commit e fuori dal thread della richiesta, come il ricalcolo dopo il caricamento dei risultati.
+   * Gli aggiornamenti di un flusso già completato non ricalcolano i punteggi.
+   */
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onWorkflowChanged(WorkflowChangedEvent event) {
+    String workflowId = event.workflowId();
+    if (workflowId == null) {
+      return;
+    }
+    if (event.deleted()) {
+      refreshExecutor.execute(() -> refresh(workflowId, () -> delete(workflowId)));
+    } else if (event.completed()) {
+      refreshExecutor.execute(() -> refresh(workflowId, () -> finalizeWorkflow(workflowId)));
+    }
+  }
+
+  /**
+   * Ricalcola i punteggi dopo il commit dei risultati, fuori dal thread della richiesta.
+   * I codici IPA dello stesso flusso sono accumulati finché il ricalcolo precedente è in coda
+   * e ricalcolati insieme, quindi un caricamento massivo non esegue un ricalcolo per richiesta.
+   */
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  public void onResultsChanged(ResultsChangedEvent event) {
+    String workflowId = event.workflowId();
+    if (workflowId == null) {
+      return;
+    }
+    if (event.wholeWorkflow()) {
+      refreshExecutor.execute(() -> refresh(workflowId, () -> {
+        if (event.deleted()) {
+          delete(workflowId);
+        } else {
+          finalizeWorkflow(workflowId);
+        }
+      }));
+      return;
+    }
+    AtomicBoolean schedule = new AtomicBoolean();
+    pending.compute(workflowId, (key, codiciIpa) -> {
+      if (codiciIpa == null) {
+        codiciIpa = new HashSet<>();
+        schedule.set(true);
+      }
+      codiciIpa.addAll(event.codiciIpa());
+      return codiciIpa;
+    });
+    if (schedule.get()) {
+      refreshExecutor.execute(() -> {
+        Set<String> codiciIpa = pending.remove(workflowId);
+        if (codiciIpa != null) {
+          refresh(workflowId, () -> update(workflowId, codiciIpa));
+        }
+      });
+    }
+  }
+
+  private void refresh(String workflowId, Runnable task) {
+    try {
+      transactionTemplate.executeWithoutResult(status -> task.run());
+    } catch (RuntimeException e) {
+      log.warn("Ricalcolo dei punteggi degli enti del flusso {} fallito", workflowId, e);
+    }
+  }
+
+  /**
+   * Ricalcola i punteggi degli enti del flusso con i codici IPA indicati.
+   */
+  private void update(String workflowId, Collection<String> codiciIpa) {
+    for (List<String> chunk : chunks(codiciIpa)) {
+      entityManager.createNativeQuery(
+              "DELETE FROM company_workflow_score WHERE workflow_id = :workflowId AND codice_ipa IN (:codiciIpa)")
+          .setParameter("workflowId", workflowId)
+          .setParameter("codiciIpa", chunk)
+          .executeUpdate();
+      upsert(workflowId, chunk);
+    }
+    log.debug("Ricalcolati i punteggi di {} codici IPA del flusso {}", codiciIpa.size(), workflowId);
+  }
+
+  /**
+   * Calcola in background i punteggi dei flussi completati che non sono ancora stati
+   * consolidati, per esempio quelli completati prima dell'introduzione della tabella.
+   * Con più istanze ogni flusso è calcolato da una sola di esse.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void onApplicationReady() {
+    if (!properties.isBackfillOnStartup()) {
+      return;
+    }
+    executor.execute(() -> {
+      try {
+        @SuppressWarnings("unchecked")
+        List<String> workflowIds = transactionTemplate.execute(status -> entityManager
+            .createNativeQuery(PENDING_WORKFLOWS)
+            .setParameter("completed", Workflow.WorkflowStatus.COMPLETED.name())
+            .getResultList());
+        log.info("Calcolo dei punteggi degli enti di {} flussi completati", workflowIds.size());
+        for (String workflowId : workflowIds) {
+          transactionTemplate.executeWithoutResult(status -> backfill(workflowId));
+        }
+      } catch (RuntimeException e) {
+        log.warn("Calcolo dei punteggi degli enti dei flussi completati fallito", e);
+      }
+    });
+  }
+
+  /**
+   * Consolida i punteggi del flusso se nessun'altra istanza lo sta facendo e se non sono
+   * stati consolidati nel frattempo. Il lock advisory è rilasciato alla fine della transazione.
+   */
+  private void backfill(String workflowId) {
+    Boolean locked = (Boolean) entityManager
+        .createNativeQuery("SELECT pg_try_advisory_xact_lock(:lock, hashtext(:workflowId))")
+        .setParameter("lock", BACKFILL_LOCK)
+        .setParameter("workflowId", workflowId)
+        .getSingleResult();
+    if (!Boolean.TRUE.equals(locked)) {
+      log.debug("Punteggi del flusso {} in calcolo su un'altra istanza", workflowId);
+      return;
+    }
+    Boolean finalized = (Boolean) entityManager.createNativeQuery(
+            "SELECT EXISTS (SELECT 1 FROM company_workflow_score WHERE workflow_id = :workflowId AND finalized)")
+        .setParameter("workflowId", workflowId)
+        .getSingleResult();
+    if (!Boolean.TRUE.equals(finalized)) {
+      finalizeWorkflow(workflowId);
+    }
+  }
+
+  /**
+   * Ricalcola da zero i punteggi di tutti gli enti del flusso.
+   */
+  private void finalizeWorkflow(String workflowId) {
+    delete(workflowId);
+    int updated = upsert(workflowId, List.of());
+    log.info("Calcolati i punteggi di {} enti del flusso {}", updated, workflowId);
+  }
+
+  private void delete(String workflowId) {
+    entityManager.createNativeQuery("DELETE FROM company_workflow_score WHERE workflow_id = :workflowId")
+        .setParameter("workflowId", workflowId)
+        .executeUpdate();
+  }
+
+  /**
+   * Calcola i punteggi degli enti del flusso, o solo di quelli con i codici IPA indicati.
+   */
+  private int upsert(String workflowId, Collection<String> codiciIpa) {
+    List<RuleDto> rules = categories();
+    Query query = entityManager.createNativeQuery(String.format(UPSERT, category(rules),
+            codiciIpa.isEmpty() ? "" : "AND codice_ipa IN (:codiciIpa) "))
+        .setParameter("workflowId", workflowId)
+        .setParameter("completed", Workflow.WorkflowStatus.COMPLETED.name())
+        .setParameter("passed", properties.getPassedStatuses())
+        .setParameter("now", LocalDateTime.now());
+    if (!codiciIpa.isEmpty()) {
+      query.setParameter("codiciIpa", codiciIpa);
+    }
+    for (int i = 0; i < rules.size(); i++) {
+      query.setParameter("min" + i, rules.get(i).getMin());
+      query.setParameter("max" + i, rules.get(i).getMax());
+    }
+    return query.executeUpdate();
+  }
+
+  private List<RuleDto> categories() {
+    return ruleCategoryProperties.getRules() != null ? ruleCategoryProperties.getRules() : List.of();
+  }
+
+  /**
+   * @return l'espressione SQL con la posizione della prima categoria il cui intervallo
+   *     comprende il numero di regole superate.
+   */
+  private static String category(List<RuleDto> rules) {
+    if (rules.isEmpty()) {
+      return "CAST(NULL AS INTEGER)";
+    }
+    StringBuilder sql = new StringBuilder("CASE");
+    for (int i = 0; i < rules.size(); i++) {
+      sql.append(String.format(" WHEN passed BETWEEN :min%d AND :max%d THEN %d", i, i, i));
+    }
+    return sql.append(" END").toString();
+  }
+
+  /**
+   * Suddivide i codici IPA in blocchi.
+   */
+  private static List<List<String>> chunks(Collection<String> values) {
+    List<String> list = List.copyOf(values);
+    List<List<String>> chunks = new ArrayList<>();
+    for (int from = 0; from < list.size(); from += CHUNK_SIZE) {
+      chunks.add(list.subList(from, Math.min(from + CHUNK_SIZE, list.size())));
+    }
+    return chunks;
+  }
+}
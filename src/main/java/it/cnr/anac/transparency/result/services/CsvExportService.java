@@ -18,9 +18,12 @@ package it.cnr.anac.transparency.result.services;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.List;
+import java.util.Iterator;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.fasterxml.jackson.databind.SequenceWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -32,41 +35,48 @@ import it.cnr.anac.transparency.result.v1.dto.ResultCsvDto;
 import it.cnr.anac.transparency.result.v1.dto.ResultCsvTerseDto;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Esportazione dei risultati di validazione in formato CSV.
+ * I risultati sono letti in streaming all'interno di una transazione in sola lettura
+ * e scritti uno alla volta sulla risposta.
+ */
 @Slf4j
 @Service
 public class CsvExportService {
 
-    public void resultsToCsvStream(List<ResultCsvDto> results, OutputStream outputStream) throws IOException {
-    log.debug("Deserializing to CSV {} results (streaming)", results.size());
-
-    final CsvMapper csvMapper = new CsvMapper();
-    csvMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-    csvMapper.registerModule(new JavaTimeModule());
-
-    CsvSchema csvSchema = csvMapper.schemaFor(ResultCsvDto.class).withHeader();
-    try (SequenceWriter seqW = csvMapper.writer(csvSchema).writeValues(outputStream)) {
-      for (ResultCsvDto result : results) {
-        seqW.write(result);
-        log.trace("Writing result{}", result);
-      }
-      seqW.flush();
-    }
+  @Transactional(readOnly = true)
+  public void resultsToCsvStream(Supplier<Stream<ResultCsvDto>> results, OutputStream outputStream)
+      throws IOException {
+    long written = writeCsv(ResultCsvDto.class, results, outputStream);
+    log.debug("Serialized to CSV {} results (streaming)", written);
   }
 
-  public void resultsToCsvTerseStream(List<ResultCsvTerseDto> results, OutputStream outputStream) throws IOException {
-    log.debug("Deserializing to CSV {} results (streaming)", results.size());
+  @Transactional(readOnly = true)
+  public void resultsToCsvTerseStream(Supplier<Stream<ResultCsvTerseDto>> results, OutputStream outputStream)
+      throws IOException {
+    long written = writeCsv(ResultCsvTerseDto.class, results, outputStream);
+    log.debug("Serialized to CSV {} terse results (streaming)", written);
+  }
 
+  private <T> long writeCsv(Class<T> type, Supplier<Stream<T>> results, OutputStream outputStream)
+      throws IOException {
     final CsvMapper csvMapper = new CsvMapper();
     csvMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
     csvMapper.registerModule(new JavaTimeModule());
 
-    CsvSchema csvSchema = csvMapper.schemaFor(ResultCsvTerseDto.class).withHeader();
-    try (SequenceWriter seqW = csvMapper.writer(csvSchema).writeValues(outputStream)) {
-      for (ResultCsvTerseDto result : results) {
+    CsvSchema csvSchema = csvMapper.schemaFor(type).withHeader();
+    long written = 0;
+    try (Stream<T> stream = results.get();
+        SequenceWriter seqW = csvMapper.writer(csvSchema).writeValues(outputStream)) {
+      Iterator<T> iterator = stream.iterator();
+      while (iterator.hasNext()) {
+        T result = iterator.next();
         seqW.write(result);
         log.trace("Writing result{}", result);
+        written++;
       }
       seqW.flush();
     }
+    return written;
   }
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.services;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import it.cnr.anac.transparency.result.config.SharedReads;
+import it.cnr.anac.transparency.result.events.ResultsChangedEvent;
+import it.cnr.anac.transparency.result.models.Workflow;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Fornisce la versione dei dati dei flussi, utilizzata come validatore nelle richieste
+ * condizionali (ETag e Last-Modified).
+ * Per ogni flusso sono registrati in workflows.results_version un contatore incrementato a ogni
+ * modifica dei suoi risultati e in workflows.results_updated_at la data dell'ultima modifica.
+ * La versione è la somma dei contatori e la data di modifica più recente tra i flussi richiesti,
+ * insieme al loro numero, che cambia anche quando un flusso viene eliminato.
+ */
+@Slf4j
+@Service
+public class DataVersionService {
+
+  private static final String VERSION =
+      "SELECT count(*), count(*) FILTER (WHERE status = 'COMPLETED'), "
+      + "max(greatest(updated_at, coalesce(results_updated_at, updated_at))), "
+      + "coalesce(sum(results_version), 0), max(updated_at) "
+      + "FROM workflows";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * Versione dei dati dei flussi.
+   *
+   * @param workflows numero di flussi
+   * @param completed numero di flussi completati
+   * @param lastModified data di ultima modifica dei flussi o dei loro risultati,
+   *     null se non ci sono flussi
+   * @param resultsVersion somma dei contatori delle modifiche dei risultati dei flussi
+   * @param workflowsUpdatedAt data di ultima modifica dei flussi, null se non ci sono flussi
+   */
+  public record DataVersion(long workflows, long completed, LocalDateTime lastModified, long resultsVersion,
+      LocalDateTime workflowsUpdatedAt) {
+
+    /**
+     * @return la data di ultima modifica in millisecondi troncata al secondo, come nell'header
+     *     Last-Modified, -1 se non ci sono flussi.
+     */
+    public long lastModifiedMillis() {
+      return lastModified != null
+          ? lastModified.truncatedTo(ChronoUnit.SECONDS).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+          : -1;
+    }
+
+    /**
+     * @return true se esistono tutti i flussi richiesti e sono tutti completati.
+     */
+    public boolean allCompleted(int requested) {
+      return requested > 0 && workflows == requested && completed == requested;
+    }
+
+    /**
+     * @return rappresentazione testuale della versione, cambia a ogni modifica dei dati anche
+     *     quando più modifiche avvengono nello stesso secondo.
+     */
+    public String stamp() {
+      return workflows + ":" + completed + ":" + resultsVersion + ":" + workflowsUpdatedAt;
+    }
+  }
+
+  /**
+   * Registra la modifica dei risultati dopo il commit, incrementando il contatore delle modifiche
+   * del flusso a ogni caricamento.
+   */
+  @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  public void onResultsChanged(ResultsChangedEvent event) {
+    if (event.workflowId() == null) {
+      return;
+    }
+    entityManager.createNativeQuery(
+            "UPDATE workflows SET results_updated_at = :now, results_version = results_version + 1 "
+            + "WHERE workflow_id = :workflowId")
+        .setParameter("now", LocalDateTime.now())
+        .setParameter("workflowId", event.workflowId())
+        .executeUpdate();
+  }
+
+  /**
+   * @return la versione dei dati dei soli flussi completati, cambia al completamento o
+   *     all'eliminazione di un flusso e alla modifica dei risultati di un flusso completato.
+   */
+  @Transactional(readOnly = true)
+  public DataVersion completedVersion() {
+    try (SharedReads.Scope scope = SharedReads.open()) {
+      return toVersion((Object[]) entityManager.createNativeQuery(VERSION + " WHERE status = :status")
+          .setParameter("status", Workflow.WorkflowStatus.COMPLETED.name())
+          .getSingleResult());
+    }
+  }
+
+  /**
+   * @param workflowIds id dei flussi, se vuoto la versione riguarda tutti i flussi.
+   * @return la versione dei dati dei flussi indicati.
+   */
+  @Transactional(readOnly = true)
+  public DataVersion version(Collection<String> workflowIds) {
+    Query query = entityManager.createNativeQuery(
+        workflowIds.isEmpty() ? VERSION : VERSION + " WHERE workflow_id IN (:workflowIds)");
+    if (!workflowIds.isEmpty()) {
+      query.setParameter("workflowIds", workflowIds);
+    }
+    // Letta come i valori in cache, una versione superata lascerebbe valida una risposta superata
+    try (SharedReads.Scope scope = SharedReads.open()) {
+      return toVersion((Object[]) query.getSingleResult());
+    }
+  }
+
+  private static DataVersion toVersion(Object[] row) {
+    return new DataVersion(((Number) row[0]).longValue(), ((Number) row[1]).longValue(),
+        toLocalDateTime(row[2]), ((Number) row[3]).longValue(), toLocalDateTime(row[4]));
+  }
+
+  private static LocalDateTime toLocalDateTime(Object value) {
+    return value instanceof Timestamp timestamp ? timestamp.toLocalDateTime() : (LocalDateTime) value;
+  }
+}
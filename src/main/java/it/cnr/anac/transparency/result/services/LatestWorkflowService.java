@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.services;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import it.cnr.anac.transparency.result.events.ResultsChangedEvent;
+import it.cnr.anac.transparency.result.events.WorkflowChangedEvent;
+import it.cnr.anac.transparency.result.models.Workflow;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Mantiene aggiornata la tabella latest_workflows con l'ultimo flusso completato
+ * di ciascun codice IPA, in modo che la sua lettura sia un accesso per chiave primaria.
+ */
+@Slf4j
+@Service
+public class LatestWorkflowService {
+
+  /**
+   * Numero massimo di codici IPA passati in una singola query di ricalcolo.
+   */
+  private static final int CHUNK_SIZE = 5000;
+
+  private static final String UPSERT =
+      "INSERT INTO latest_workflows (codice_ipa, workflow_id, result_id, completed_at) "
+      + "SELECT r.codice_ipa, r.workflow_id, max(r.id), max(w.updated_at) "
+      + "FROM results r JOIN workflows w ON w.workflow_id = r.workflow_id "
+      + "WHERE r.workflow_id = :workflowId AND w.status = :status AND r.codice_ipa IS NOT NULL %s"
+      + "GROUP BY r.codice_ipa, r.workflow_id "
+      + "ON CONFLICT (codice_ipa) DO UPDATE SET workflow_id = EXCLUDED.workflow_id, "
+      + "result_id = EXCLUDED.result_id, completed_at = EXCLUDED.completed_at "
+      + "WHERE latest_workflows.result_id <= EXCLUDED.result_id";
+
+  private static final String RECOMPUTE =
+      "INSERT INTO latest_workflows (codice_ipa, workflow_id, result_id, completed_at) "
+      + "SELECT codice_ipa, workflow_id, id, completed_at FROM ("
+      + "SELECT r.codice_ipa, r.workflow_id, r.id, w.updated_at AS completed_at, "
+      + "row_number() OVER (PARTITION BY r.codice_ipa ORDER BY r.id DESC) AS position "
+      + "FROM results r JOIN workflows w ON w.workflow_id = r.workflow_id "
+      + "WHERE w.status = :status AND r.codice_ipa IN (:codiciIpa)) latest "
+      + "WHERE position = 1";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @EventListener
+  @Transactional
+  public void onWorkflowChanged(WorkflowChangedEvent event) {
+    if (event.workflowId() == null) {
+      return;
+    }
+    if (event.completed()) {
+      int updated = upsert(event.workflowId(), List.of());
+      log.info("Flusso {} completato, aggiornato l'ultimo flusso di {} codici IPA",
+          event.workflowId(), updated);
+    } else if (event.noLongerCompleted()) {
+      // Il flusso potrebbe essere stato l'ultimo completato di alcuni codici IPA
+      recomputeWorkflow(event.workflowId());
+    }
+  }
+
+  @EventListener
+  @Transactional
+  public void onResultsChanged(ResultsChangedEvent event) {
+    if (event.workflowId() == null) {
+      return;
+    }
+    if (!event.deleted()) {
+      // Ha effetto solo se il flusso è già completato
+      upsert(event.workflowId(), event.codiciIpa());
+    } else if (event.wholeWorkflow()) {
+      recomputeWorkflow(event.workflowId());
+    } else {
+      recompute(event.codiciIpa());
+    }
+  }
+
+  /**
+   * Imposta il flusso come ultimo completato per i suoi codici IPA (o solo per quelli indicati),
+   * a meno che i codici IPA non abbiano risultati più recenti in un altro flusso completato.
+   */
+  private int upsert(String workflowId, Collection<String> codiciIpa) {
+    int updated = 0;
+    for (List<String> chunk : chunks(codiciIpa)) {
+      Query query = entityManager.createNativeQuery(
+              String.format(UPSERT, chunk.isEmpty() ? "" : "AND r.codice_ipa IN (:codiciIpa) "))
+          .setParameter("workflowId", workflowId)
+          .setParameter("status", Workflow.WorkflowStatus.COMPLETED.name());
+      if (!chunk.isEmpty()) {
+        query.setParameter("codiciIpa", chunk);
+      }
+      updated += query.executeUpdate();
+    }
+    return updated;
+  }
+
+  private void recomputeWorkflow(String workflowId) {
+    @SuppressWarnings("unchecked")
+    List<String> codiciIpa = entityManager
+        .createNativeQuery("SELECT codice_ipa FROM latest_workflows WHERE workflow_id = :workflowId")
+        .setParameter("workflowId", workflowId)
+        .getResultList();
+    if (!codiciIpa.isEmpty()) {
+      recompute(codiciIpa);
+      log.info("Ricalcolato l'ultimo flusso completato di {} codici IPA del flusso {}",
+          codiciIpa.size(), workflowId);
+    }
+  }
+
+  /**
+   * Ricalcola da zero l'ultimo flusso completato dei codici IPA indicati.
+   */
+  private void recompute(Collection<String> codiciIpa) {
+    for (List<String> chunk : chunks(codiciIpa)) {
+      if (chunk.isEmpty()) {
+        continue;
+      }
+      entityManager.createNativeQuery("DELETE FROM latest_workflows WHERE codice_ipa IN (:codiciIpa)")
+          .setParameter("codiciIpa", chunk)
+          .executeUpdate();
+      entityManager.createNativeQuery(RECOMPUTE)
+          .setParameter("status", Workflow.WorkflowStatus.COMPLETED.name())
+          .setParameter("codiciIpa", chunk)
+          .executeUpdate();
+    }
+  }
+
+  /**
+   * Suddivide i codici IPA in blocchi, una collezione vuota produce un unico blocco vuoto.
+   */
+  private static List<List<String>> chunks(Collection<String> values) {
+    List<String> list = List.copyOf(values);
+    List<List<String>> chunks = new ArrayList<>();
+    int from = 0;
+    do {
+      chunks.add(list.subList(from, Math.min(from + CHUNK_SIZE, list.size())));
+      from += CHUNK_SIZE;
+    } while (from < list.size());
+    return chunks;
+  }
+}
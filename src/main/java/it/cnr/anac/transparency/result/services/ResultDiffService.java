@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+
+import it.cnr.anac.transparency.result.repositories.ResultDao;
+import it.cnr.anac.transparency.result.repositories.ResultStatusRow;
+import it.cnr.anac.transparency.result.v1.dto.ResultDiffDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Confronto tra i risultati di due flussi: per ogni coppia (regola, ente) segnala se è stata
+ * aggiunta, rimossa o se ha cambiato stato.
+ * I risultati dei due flussi sono letti in streaming nell'ordine dell'indice univoco
+ * (workflow_id, rule_name, id_ipa) e confrontati con un merge-join, quindi la memoria
+ * utilizzata non dipende dal numero di risultati.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Service
+public class ResultDiffService {
+
+  private final ResultDao resultDao;
+  private final ObjectMapper objectMapper;
+
+  /**
+   * Scrive sull'outputStream le differenze tra i due flussi in formato NDJSON o CSV.
+   * La transazione in REPEATABLE_READ garantisce che le letture vedano la stessa versione
+   * dei dati.
+   *
+   * @return il numero di differenze scritte.
+   */
+  @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+  public long writeDiff(String fromWorkflowId, String toWorkflowId, boolean csv, OutputStream outputStream)
+      throws IOException {
+    // L'ordine dei nomi delle regole dipende dalla collation del database, per confrontarli
+    // nello stesso ordine in cui sono letti si usa la loro posizione
+    List<String> ruleNames = resultDao.ruleNames(List.of(fromWorkflowId, toWorkflowId));
+    Map<String, Integer> ruleOrder = new HashMap<>();
+    for (int i = 0; i < ruleNames.size(); i++) {
+      ruleOrder.put(ruleNames.get(i), i);
+    }
+    Comparator<ResultStatusRow> order = Comparator
+        .comparing((ResultStatusRow row) -> ruleOrder.getOrDefault(row.ruleName(), Integer.MAX_VALUE))
+        .thenComparing(ResultStatusRow::idIpa);
+    long written = 0;
+    try (Stream<ResultStatusRow> from = resultDao.streamStatuses(fromWorkflowId);
+        Stream<ResultStatusRow> to = resultDao.streamStatuses(toWorkflowId);
+        SequenceWriter writer = writer(csv, outputStream)) {
+      long[] count = { 0 };
+      diff(from.iterator(), to.iterator(), order, change -> {
+        try {
+          writer.write(change);
+          count[0]++;
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+      writer.flush();
+      written = count[0];
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    log.debug("Scritte {} differenze tra i flussi {} e {} (csv = {})",
+        written, fromWorkflowId, toWorkflowId, csv);
+    return written;
+  }
+
+  private SequenceWriter writer(boolean csv, OutputStream outputStream) throws IOException {
+    if (csv) {
+      CsvMapper csvMapper = new CsvMapper();
+      CsvSchema csvSchema = csvMapper.schemaFor(ResultDiffDto.class).withHeader();
+      return csvMapper.writer(csvSchema).writeValues(outputStream);
+    }
+    return objectMapper.writer().withRootValueSeparator("\n").writeValues(outputStream);
+  }
+
+  /**
+   * Merge-join di due sequenze ordinate con lo stesso ordinamento e senza chiavi duplicate:
+   * le righe presenti solo nella prima sono rimosse, quelle solo nella seconda aggiunte e
+   * quelle presenti in entrambe con stato diverso cambiate.
+   */
+  public static void diff(Iterator<ResultStatusRow> from, Iterator<ResultStatusRow> to,
+      Comparator<ResultStatusRow> order, Consumer<ResultDiffDto> changes) {
+    ResultStatusRow left = from.hasNext() ? from.next() : null;
+    ResultStatusRow right = to.hasNext() ? to.next() : null;
+    while (left != null || right != null) {
+      int comparison = left == null ? 1 : right == null ? -1 : order.compare(left, right);
+      if (comparison < 0) {
+        changes.accept(change(ResultDiffDto.Change.REMOVED, left, left.status(), null));
+        left = from.hasNext() ? from.next() : null;
+      } else if (comparison > 0) {
+        changes.accept(change(ResultDiffDto.Change.ADDED, right, null, right.status()));
+        right = to.hasNext() ? to.next() : null;
+      } else {
+        if (!Objects.equals(left.status(), right.status())) {
+          changes.accept(change(ResultDiffDto.Change.CHANGED, right, left.status(), right.status()));
+        }
+        left = from.hasNext() ? from.next() : null;
+        right = to.hasNext() ? to.next() : null;
+      }
+    }
+  }
+
+  private static ResultDiffDto change(ResultDiffDto.Change change, ResultStatusRow row,
+      Integer fromStatus, Integer toStatus) {
+    return new ResultDiffDto(change, row.ruleName(), row.idIpa(), row.codiceIpa(), row.denominazioneEnte(),
+        fromStatus, toStatus);
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.services;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Consolidamento, verifica e ricostruzione della tabella result_status_counts, che contiene
+ * il numero di risultati per flusso, regola e stato. I trigger sulla tabella results
+ * (migrazioni V0_0_11 e V0_0_15) accodano le variazioni in result_status_count_deltas, che
+ * sono sommate periodicamente in result_status_counts; la vista result_status_totals somma
+ * le due tabelle.
+ * I trigger non sono eseguiti per le TRUNCATE e per le modifiche fatte con i trigger
+ * disabilitati: la verifica periodica confronta la tabella con il conteggio sui risultati
+ * e, se ci sono differenze, la ricostruisce.
+ */
+@Slf4j
+@Service
+public class ResultStatusCountService {
+
+  static final String LIVE_COUNTS =
+      "SELECT workflow_id, coalesce(rule_name, '') AS rule_name, status, count(*) AS n FROM results "
+      + "WHERE workflow_id IS NOT NULL AND status IS NOT NULL GROUP BY 1, 2, 3";
+
+  private static final String DIFFERENCES =
+      "SELECT count(*) FROM (" + LIVE_COUNTS + ") live "
+      + "FULL JOIN (SELECT * FROM result_status_totals WHERE n > 0) c "
+      + "USING (workflow_id, rule_name, status) "
+      + "WHERE live.n IS DISTINCT FROM c.n";
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * @return il numero di conteggi per flusso, regola e stato diversi da quelli calcolati
+   *     sui risultati.
+   */
+  @Transactional(readOnly = true)
+  public long differences() {
+    // Le due tabelle sono lette con la stessa snapshot e i trigger aggiornano i conteggi
+    // nella transazione della modifica, quindi le scritture concorrenti non creano differenze
+    return ((Number) entityManager.createNativeQuery(DIFFERENCES).getSingleResult()).longValue();
+  }
+
+  /**
+   * Somma le variazioni accodate dai trigger nella tabella result_status_counts, così le
+   * letture dalla vista result_status_totals restano brevi.
+   *
+   * @return il numero di variazioni sommate.
+   */
+  @Scheduled(fixedDelayString = "${result-status-counts.merge-delay:60000}")
+  @Transactional
+  public long merge() {
+    long merged = ((Number) entityManager.createNativeQuery("SELECT result_status_counts_merge()")
+        .getSingleResult()).longValue();
+    if (merged > 0) {
+      log.debug("Sommate {} variazioni dei conteggi dei risultati per flusso e stato", merged);
+    }
+    return merged;
+  }
+
+  @Scheduled(cron = "${result-status-counts.reconcile-cron:-}")
+  @Transactional
+  public void reconcile() {
+    merge();
+    long differences = differences();
+    if (differences == 0) {
+      log.debug("I conteggi dei risultati per flusso e stato sono allineati");
+      return;
+    }
+    log.warn("Trovati {} conteggi dei risultati per flusso e stato non allineati, ricostruzione in corso",
+        differences);
+    rebuild();
+  }
+
+  /**
+   * Ricalcola da zero la tabella result_status_counts. Le scritture sui risultati sono
+   * bloccate fino al termine della transazione, per non perdere i loro aggiornamenti.
+   *
+   * @return il numero di conteggi inseriti.
+   */
+  @Transactional
+  public int rebuild() {
+    entityManager.createNativeQuery("LOCK TABLE results IN SHARE MODE").executeUpdate();
+    entityManager.createNativeQuery("DELETE FROM result_status_count_deltas").executeUpdate();
+    entityManager.createNativeQuery("DELETE FROM result_status_counts").executeUpdate();
+    int inserted = entityManager.createNativeQuery(
+            "INSERT INTO result_status_counts (workflow_id, rule_name, status, n) " + LIVE_COUNTS)
+        .executeUpdate();
+    log.info("Ricostruita la tabella result_status_counts con {} conteggi", inserted);
+    return inserted;
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.services;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Scrittura in streaming dei risultati di validazione in formato JSON o NDJSON.
+ * I risultati sono letti da un cursore del database e scritti uno alla volta
+ * sulla risposta, quindi la memoria utilizzata non dipende dal numero di risultati.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Service
+public class ResultStreamService {
+
+  private final ObjectMapper objectMapper;
+
+  /**
+   * Scrive i risultati sull'outputStream come array JSON oppure come NDJSON (un oggetto JSON
+   * per riga).
+   *
+   * @param results fornisce lo stream dei risultati, aperto all'interno della transazione.
+   * @param filter filtro applicato ai risultati prima della scrittura.
+   * @param ndjson true per scrivere i risultati in formato NDJSON.
+   * @return il numero di risultati scritti.
+   */
+  @Transactional(readOnly = true)
+  public <T> long writeJson(Supplier<Stream<T>> results, Predicate<T> filter,
+      boolean ndjson, OutputStream outputStream) throws IOException {
+    ObjectWriter writer = objectMapper.writer();
+    long written = 0;
+    try (Stream<T> stream = results.get();
+        SequenceWriter seqW = ndjson
+            ? writer.withRootValueSeparator("\n").writeValues(outputStream)
+            : writer.writeValuesAsArray(outputStream)) {
+      Iterator<T> iterator = stream.iterator();
+      while (iterator.hasNext()) {
+        T dto = iterator.next();
+        if (filter.test(dto)) {
+          seqW.write(dto);
+          written++;
+        }
+      }
+      seqW.flush();
+    }
+    log.debug("Scritti in streaming {} risultati (ndjson = {})", written, ndjson);
+    return written;
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.services;
+
+import java.util.Set;
+
+/**
+ * Chiave di cache che riporta gli id dei flussi da cui dipende il valore in cache, in modo
+ * da poter eliminare solo le chiavi dei flussi modificati.
+ *
+ * @param workflowIds id dei flussi da cui dipende il valore, vuoto se il valore dipende
+ *     da tutti i flussi (ricerche senza filtro sul flusso)
+ * @param key chiave calcolata dai parametri del metodo
+ */
+public record WorkflowScopedKey(Set<String> workflowIds, Object key) {
+
+  /**
+   * @return true se il valore in cache dipende dai risultati del flusso indicato.
+   */
+  public boolean dependsOn(String workflowId) {
+    return workflowIds.isEmpty() || workflowIds.contains(workflowId);
+  }
+}
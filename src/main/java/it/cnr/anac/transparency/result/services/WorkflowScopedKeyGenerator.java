@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.services;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.cache.interceptor.SimpleKeyGenerator;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Generatore di chiavi di cache di tipo {@link WorkflowScopedKey}: gli id dei flussi sono
+ * letti dal parametro del metodo di nome workflowId, che può essere una stringa, una
+ * collezione di stringhe o un Optional di questi.
+ */
+@Component(WorkflowScopedKeyGenerator.NAME)
+public class WorkflowScopedKeyGenerator implements KeyGenerator {
+
+  public static final String NAME = "workflowScopedKeyGenerator";
+
+  private static final String WORKFLOW_ID_PARAMETER = "workflowId";
+
+  private final ParameterNameDiscoverer parameterNameDiscoverer = new DefaultParameterNameDiscoverer();
+
+  @Override
+  public Object generate(Object target, Method method, Object... params) {
+    // Più metodi condividono la stessa cache, la chiave contiene anche il nome del metodo
+    return new WorkflowScopedKey(workflowIds(method, params),
+        new SimpleKey(method.getName(), SimpleKeyGenerator.generateKey(params)));
+  }
+
+  private Set<String> workflowIds(Method method, Object[] params) {
+    String[] names = parameterNameDiscoverer.getParameterNames(method);
+    if (names != null) {
+      for (int i = 0; i < names.length && i < params.length; i++) {
+        if (WORKFLOW_ID_PARAMETER.equals(names[i])) {
+          return workflowIds(params[i]);
+        }
+      }
+    }
+    return Set.of();
+  }
+
+  /**
+   * @return gli id dei flussi contenuti nel valore del filtro, vuoto se il filtro non
+   *     è impostato.
+   */
+  public static Set<String> workflowIds(Object workflowId) {
+    Object value = workflowId instanceof Optional<?> optional ? optional.orElse(null) : workflowId;
+    if (value instanceof Collection<?> collection) {
+      return collection.stream()
+          .filter(Objects::nonNull)
+          .map(Object::toString)
+          .collect(Collectors.toUnmodifiableSet());
+    }
+    return value != null ? Set.of(value.toString()) : Set.of();
+  }
+}
@@ -31,10 +31,17 @@ public class ApiRoutes {
 
   public static final String LIST = "";
   public static final String LIST_ALL = "/all";
+  public static final String LIST_ALL_STREAM = LIST_ALL + "/stream";
+  public static final String LIST_KEYSET = "/keyset";
+  public static final String LIST_SLICE = "/slice";
   public static final String CODICE_IPA = "/codiceipa";
   public static final String CODICE_IPA_WORKFLOWID = CODICE_IPA + "/byWorkflow";
   public static final String CODICE_IPA_COUNT = CODICE_IPA + "/count";
+  public static final String CODICE_IPA_BATCH = CODICE_IPA + "/batch";
+  public static final String CODICE_IPA_HISTORY = CODICE_IPA + "/history";
   public static final String LIST_AS_CSV = "/csv";
+  public static final String COMPANIES_SEARCH = "/companies/search";
+  public static final String DIFF = "/diff";
   public static final String SHOW = "/" + ID_REGEX;
   public static final String CREATE = "";
   public static final String CREATE_BULK = "/bulk";
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.v1.controllers;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import it.cnr.anac.transparency.result.config.RuleCategoryProperties;
+import it.cnr.anac.transparency.result.models.CompanyWorkflowScore;
+import it.cnr.anac.transparency.result.repositories.CompanyWorkflowScoreDao;
+import it.cnr.anac.transparency.result.v1.ApiRoutes;
+import it.cnr.anac.transparency.result.v1.dto.CompanyWorkflowScoreMapper;
+import it.cnr.anac.transparency.result.v1.dto.CompanyWorkflowScoreShowDto;
+import it.cnr.anac.transparency.result.v1.dto.RuleDto;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Optional;
+
+@SecurityRequirement(name = "bearer_authentication")
+@Tag(
+        name = "Company Score Controller",
+        description = "Punteggi degli enti per flusso di validazione")
+@Slf4j
+@RequiredArgsConstructor
+@RestController
+@RequestMapping(ApiRoutes.BASE_PATH + "/scores")
+public class CompanyScoreController {
+
+    private final CompanyWorkflowScoreDao companyWorkflowScoreDao;
+    private final CompanyWorkflowScoreMapper mapper;
+    private final RuleCategoryProperties ruleCategoryProperties;
+
+    @Operation(
+            summary = "Visualizzazione dei punteggi degli enti in un flusso: regole superate e non superate, "
+                    + "numero di risultati per stato e categoria.",
+            description = "Le informazioni sono restituite paginate e possono essere ordinate per "
+                    + "passed, failed, category, idIpa, codiceIpa e denominazioneEnte.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Restituita una pagina dei punteggi degli enti del flusso.")
+    })
+    @GetMapping(ApiRoutes.LIST)
+    public ResponseEntity<Page<CompanyWorkflowScoreShowDto>> list(
+            @RequestParam("workflowId") String workflowId,
+            @RequestParam("category") Optional<Integer> category,
+            @RequestParam("codiceIpa") Optional<String> codiceIpa,
+            @RequestParam("codiceCategoria") Optional<String> codiceCategoria,
+            @RequestParam("minPassed") Optional<Integer> minPassed,
+            @RequestParam("maxPassed") Optional<Integer> maxPassed,
+            @Parameter(allowEmptyValue = true, example = "{ \"page\": 0, \"size\":100, \"sort\":\"passed,desc\"}")
+            Pageable pageable) {
+        List<RuleDto> rules = Optional.ofNullable(ruleCategoryProperties.getRules()).orElse(List.of());
+        Page<CompanyWorkflowScoreShowDto> scores = companyWorkflowScoreDao
+                .find(workflowId, category, codiceIpa, codiceCategoria, minPassed, maxPassed, pageable)
+                .map(entity -> convert(entity, rules));
+        return ResponseEntity.ok().body(scores);
+    }
+
+    private CompanyWorkflowScoreShowDto convert(CompanyWorkflowScore entity, List<RuleDto> rules) {
+        CompanyWorkflowScoreShowDto dto = mapper.convert(entity);
+        Integer category = entity.getCategory();
+        if (category != null && category >= 0 && category < rules.size()) {
+            dto.setCategory(rules.get(category));
+        }
+        return dto;
+    }
+}
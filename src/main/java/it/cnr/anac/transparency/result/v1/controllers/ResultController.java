@@ -20,18 +20,27 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+import it.cnr.anac.transparency.result.events.ResultsChangedEvent;
+import it.cnr.anac.transparency.result.events.WorkflowChangedEvent;
 import it.cnr.anac.transparency.result.models.Workflow;
 import it.cnr.anac.transparency.result.repositories.WorkflowRepository;
 import it.cnr.anac.transparency.result.v1.dto.*;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -39,6 +48,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -52,11 +62,15 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import it.cnr.anac.transparency.result.models.Result;
 import it.cnr.anac.transparency.result.models.ResultCount;
+import it.cnr.anac.transparency.result.repositories.ResultCursor;
 import it.cnr.anac.transparency.result.repositories.ResultDao;
+import it.cnr.anac.transparency.result.repositories.ResultProjections;
 import it.cnr.anac.transparency.result.repositories.ResultRepository;
-import it.cnr.anac.transparency.result.services.CachingService;
+import it.cnr.anac.transparency.result.services.CompanyHistoryService;
 import it.cnr.anac.transparency.result.services.CsvExportService;
 import it.cnr.anac.transparency.result.services.MinioService;
+import it.cnr.anac.transparency.result.services.ResultDiffService;
+import it.cnr.anac.transparency.result.services.ResultStreamService;
 import it.cnr.anac.transparency.result.v1.ApiRoutes;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.servlet.http.HttpServletResponse;
@@ -76,14 +90,22 @@ import lombok.extern.slf4j.Slf4j;
 @RequestMapping(ApiRoutes.BASE_PATH + "/results")
 public class ResultController {
 
+    private static final int KEYSET_MAX_PAGE_SIZE = 100000;
+    private static final int COMPANIES_SEARCH_MAX_RESULTS = 100;
+    private static final int HISTORY_MAX_WORKFLOWS = 50;
+    private static final int HISTORY_MAX_CODICI_IPA = 1000;
+
     private final ResultRepository resultRepository;
     private final ResultDao resultDao;
     private final ResultMapper mapper;
     private final ResultDtoToEntityConverter dtoToEntityConverter;
     private final CsvExportService csvExportService;
-    private final CachingService cachingService;
+    private final ResultStreamService resultStreamService;
+    private final ResultDiffService resultDiffService;
+    private final CompanyHistoryService companyHistoryService;
     private final MinioService minioService;
     private final WorkflowRepository workflowRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Operation(
             summary = "Visualizzazione delle informazioni di un risultato di validazione.")
@@ -104,7 +126,9 @@ public class ResultController {
     @Operation(
             summary = "Visualizzazione dei risultati di validazione presenti nel sistema, filtrabili "
                     + "utilizzando alcuni parametri.",
-            description = "Le informazioni sono restituite paginate.")
+            description = "Le informazioni sono restituite paginate. I filtri codiceCategoria, codiceIpa, "
+                    + "ruleName, status e workflowId accettano più valori, separati da virgola o ripetendo "
+                    + "il parametro, e restituiscono i risultati che corrispondono ad almeno uno dei valori.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200",
                     description = "Restituita una pagina della lista risultati di validazione presenti.")
@@ -112,35 +136,101 @@ public class ResultController {
     @GetMapping(ApiRoutes.LIST)
     public ResponseEntity<Page<ResultShowDto>> list(
             @RequestParam("idIpa") Optional<Long> idIpa,
-            @RequestParam("codiceCategoria") Optional<String> codiceCategoria,
+            @RequestParam("codiceCategoria") Optional<List<String>> codiceCategoria,
             @RequestParam("codiceFiscaleEnte") Optional<String> codiceFiscaleEnte,
-            @RequestParam("codiceIpa") Optional<String> codiceIpa,
+            @RequestParam("codiceIpa") Optional<List<String>> codiceIpa,
             @RequestParam("denominazioneEnte") Optional<String> denominazioneEnte,
-            @RequestParam("ruleName") Optional<String> ruleName,
+            @RequestParam("ruleName") Optional<List<String>> ruleName,
             @RequestParam("isLeaf") Optional<Boolean> isLeaf,
-            @RequestParam("status") Optional<Integer> status,
-            @RequestParam("workflowId") Optional<String> workflowId,
+            @RequestParam("status") Optional<List<Integer>> status,
+            @RequestParam("workflowId") Optional<List<String>> workflowId,
             @RequestParam("createdAfter") Optional<LocalDate> createdAfter,
             @RequestParam("noCache") Optional<Boolean> noCache,
             @Parameter(required = false, allowEmptyValue = true, example = "{ \"page\": 0, \"size\":100, \"sort\":\"id\"}")
             Pageable pageable) {
-        codiceCategoria = codiceCategoria.isPresent() && codiceCategoria.get().isEmpty() ?
-                Optional.empty() : codiceCategoria;
+        codiceCategoria = nonEmpty(codiceCategoria);
         Page<ResultShowDto> results = null;
         if (noCache.isEmpty() || noCache.get().equals(Boolean.FALSE)) {
             results =
                     resultDao.findWithCache(idIpa, codiceCategoria, codiceFiscaleEnte, codiceIpa,
-                                    denominazioneEnte, ruleName, isLeaf, status, workflowId, createdAfter, pageable)
-                            .map(mapper::convert);
+                                    denominazioneEnte, ruleName, isLeaf, status, workflowId, createdAfter, pageable);
         } else {
             results =
                     resultDao.find(idIpa, codiceCategoria, codiceFiscaleEnte, codiceIpa,
-                                    denominazioneEnte, ruleName, isLeaf, status, workflowId, createdAfter, pageable)
-                            .map(mapper::convert);
+                                    denominazioneEnte, ruleName, isLeaf, status, workflowId, createdAfter, pageable);
         }
         return ResponseEntity.ok().body(results);
     }
 
+    @Operation(
+            summary = "Visualizzazione dei risultati di validazione presenti nel sistema, filtrabili "
+                    + "utilizzando alcuni parametri, senza il conteggio del totale.",
+            description = "Le informazioni sono restituite paginate, la risposta indica solo se esiste "
+                    + "una pagina successiva (hasNext) e non contiene il numero totale di elementi, "
+                    + "evitando la relativa query di conteggio.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Restituita una pagina della lista risultati di validazione presenti.")
+    })
+    @GetMapping(ApiRoutes.LIST_SLICE)
+    public ResponseEntity<Slice<ResultShowDto>> listSlice(
+            @RequestParam("idIpa") Optional<Long> idIpa,
+            @RequestParam("codiceCategoria") Optional<List<String>> codiceCategoria,
+            @RequestParam("codiceFiscaleEnte") Optional<String> codiceFiscaleEnte,
+            @RequestParam("codiceIpa") Optional<List<String>> codiceIpa,
+            @RequestParam("denominazioneEnte") Optional<String> denominazioneEnte,
+            @RequestParam("ruleName") Optional<List<String>> ruleName,
+            @RequestParam("isLeaf") Optional<Boolean> isLeaf,
+            @RequestParam("status") Optional<List<Integer>> status,
+            @RequestParam("workflowId") Optional<List<String>> workflowId,
+            @RequestParam("createdAfter") Optional<LocalDate> createdAfter,
+            @Parameter(required = false, allowEmptyValue = true, example = "{ \"page\": 0, \"size\":100, \"sort\":\"id\"}")
+            Pageable pageable) {
+        codiceCategoria = nonEmpty(codiceCategoria);
+        Slice<ResultShowDto> results =
+                resultDao.findSlice(idIpa, codiceCategoria, codiceFiscaleEnte, codiceIpa,
+                        denominazioneEnte, ruleName, isLeaf, status, workflowId, createdAfter, pageable);
+        return ResponseEntity.ok().body(results);
+    }
+
+    @Operation(
+            summary = "Visualizzazione dei risultati di validazione presenti nel sistema, filtrabili "
+                    + "utilizzando alcuni parametri, con paginazione tramite cursore.",
+            description = "Le informazioni sono restituite a pagine, ogni pagina contiene nel campo 'next' "
+                    + "il cursore da passare nel parametro 'after' per ottenere la pagina successiva. "
+                    + "A differenza della paginazione classica il costo di ogni pagina non dipende dalla "
+                    + "sua posizione. L'ordinamento è supportato solo per id, createdAt e updatedAt.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Restituita una pagina della lista risultati di validazione presenti."),
+            @ApiResponse(responseCode = "400",
+                    description = "Cursore o ordinamento non validi.",
+                    content = @Content)
+    })
+    @GetMapping(ApiRoutes.LIST_KEYSET)
+    public ResponseEntity<CursorPageDto<ResultShowDto>> listKeyset(
+            @RequestParam("idIpa") Optional<Long> idIpa,
+            @RequestParam("codiceCategoria") Optional<List<String>> codiceCategoria,
+            @RequestParam("codiceFiscaleEnte") Optional<String> codiceFiscaleEnte,
+            @RequestParam("codiceIpa") Optional<List<String>> codiceIpa,
+            @RequestParam("denominazioneEnte") Optional<String> denominazioneEnte,
+            @RequestParam("ruleName") Optional<List<String>> ruleName,
+            @RequestParam("isLeaf") Optional<Boolean> isLeaf,
+            @RequestParam("status") Optional<List<Integer>> status,
+            @RequestParam("workflowId") Optional<List<String>> workflowId,
+            @RequestParam("createdAfter") Optional<LocalDate> createdAfter,
+            @RequestParam("after") Optional<String> after,
+            @RequestParam(value = "size", defaultValue = "100") Integer size,
+            @Parameter(required = false, allowEmptyValue = true) Sort sort) {
+        codiceCategoria = nonEmpty(codiceCategoria);
+        int pageSize = Math.max(1, Math.min(size, KEYSET_MAX_PAGE_SIZE));
+        CursorPageDto<ResultShowDto> results =
+                resultDao.findAfter(idIpa, codiceCategoria, codiceFiscaleEnte, codiceIpa,
+                                denominazioneEnte, ruleName, isLeaf, status, workflowId, createdAfter,
+                                after.filter(s -> !s.isEmpty()).map(ResultCursor::decode), pageSize, sort);
+        return ResponseEntity.ok().body(results);
+    }
+
     @Operation(
             summary = "Visualizzazione dei risultati di validazione presenti nel sistema, filtrabili "
                     + "solo per Codice IPA e ID del flusso, obbligatori.",
@@ -162,15 +252,13 @@ public class ResultController {
         if (noCache.isEmpty() || noCache.get().equals(Boolean.FALSE)) {
             results =
                     resultDao.findWithCache(Optional.empty(), Optional.empty(), Optional.empty(),
-                                    Optional.of(codiceIpa), Optional.empty(), Optional.empty(), Optional.empty(),
-                                    Optional.empty(), Optional.of(workflowId), Optional.empty(), pageable)
-                            .map(mapper::convert);
+                                    Optional.of(List.of(codiceIpa)), Optional.empty(), Optional.empty(), Optional.empty(),
+                                    Optional.empty(), Optional.of(List.of(workflowId)), Optional.empty(), pageable);
         } else {
             results =
-                    resultDao.find(Optional.empty(), Optional.empty(), Optional.empty(), Optional.of(codiceIpa),
+                    resultDao.find(Optional.empty(), Optional.empty(), Optional.empty(), Optional.of(List.of(codiceIpa)),
                                     Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(),
-                            Optional.of(workflowId), Optional.empty(), pageable)
-                            .map(mapper::convert);
+                            Optional.of(List.of(workflowId)), Optional.empty(), pageable);
         }
         if (log.isDebugEnabled()) {
             log.debug("Richiesti i risultati per flusso {} e codice IPA {}", workflowId, codiceIpa);
@@ -186,20 +274,18 @@ public class ResultController {
             @Parameter(required = false, allowEmptyValue = true, example = "{ \"page\": 0, \"size\":100, \"sort\":\"id\"}")
             Pageable pageable) {
         Page<ResultShowDto> results = null;
-        Optional<String> workflowId = resultDao.lastResultForCodiceIpa(codiceIpa).map(Result::getWorkflowId);
+        Optional<String> workflowId = resultDao.lastWorkflowIdForCodiceIpa(codiceIpa);
 
         if (noCache.isEmpty() || noCache.get().equals(Boolean.FALSE)) {
             results =
                     resultDao.findWithCache(Optional.empty(), Optional.empty(), Optional.empty(),
-                                    Optional.of(codiceIpa), Optional.empty(), Optional.empty(), Optional.empty(),
-                                    Optional.empty(), workflowId, Optional.empty(), pageable)
-                            .map(mapper::convert);
+                                    Optional.of(List.of(codiceIpa)), Optional.empty(), Optional.empty(), Optional.empty(),
+                                    Optional.empty(), workflowId.map(List::of), Optional.empty(), pageable);
         } else {
             results =
-                    resultDao.find(Optional.empty(), Optional.empty(), Optional.empty(), Optional.of(codiceIpa),
+                    resultDao.find(Optional.empty(), Optional.empty(), Optional.empty(), Optional.of(List.of(codiceIpa)),
                                     Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(),
-                                    workflowId, Optional.empty(), pageable)
-                            .map(mapper::convert);
+                                    workflowId.map(List::of), Optional.empty(), pageable);
         }
         if (log.isDebugEnabled()) {
             log.debug("Richiesti i risultati per flusso {} e codice IPA {}", workflowId, codiceIpa);
@@ -208,6 +294,65 @@ public class ResultController {
         return ResponseEntity.ok().body(results);
     }
 
+    @Operation(
+            summary = "Visualizzazione dei risultati dell'ultimo flusso completato per più Codici IPA.",
+            description = "Per ciascun Codice IPA della lista sono restituiti i risultati dell'ultimo flusso "
+                    + "completato, nello stesso ordine della richiesta. L'ultimo flusso di tutti i Codici IPA "
+                    + "è individuato con un'unica query e i risultati sono letti con un'unica query per "
+                    + "blocchi di codici, invece di due query per ogni Codice IPA.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Restituiti i risultati per Codice IPA."),
+            @ApiResponse(responseCode = "400", description = "Lista dei Codici IPA assente o troppo lunga.",
+                    content = @Content)
+    })
+    @PostMapping(ApiRoutes.CODICE_IPA_BATCH)
+    public ResponseEntity<List<CodiceIpaResultsDto>> codiceIpaBatch(
+            @NotNull @Valid @RequestBody CodiceIpaBatchDto batchDto) {
+        List<String> codiciIpa = batchDto.getCodiciIpa().stream()
+                .filter(s -> s != null && !s.isEmpty())
+                .distinct()
+                .toList();
+        Map<String, String> workflowIds = resultDao.lastWorkflowIdsForCodiciIpa(codiciIpa);
+        Map<String, List<ResultShowDto>> results = resultDao.findByCodiceIpaAndWorkflowId(workflowIds);
+        log.debug("Richiesti i risultati di {} codici IPA, trovati {} flussi completati",
+                codiciIpa.size(), workflowIds.size());
+        return ResponseEntity.ok().body(
+                codiciIpa.stream()
+                        .map(codiceIpa -> new CodiceIpaResultsDto(codiceIpa, workflowIds.get(codiceIpa),
+                                results.getOrDefault(codiceIpa, List.of())))
+                        .toList());
+    }
+
+    @Operation(
+            summary = "Storico degli stati delle regole per Codice IPA negli ultimi flussi completati.",
+            description = "Per ciascun Codice IPA è restituita una matrice flusso × regola: i flussi "
+                    + "completati in cui è presente il Codice IPA, dal più recente, e per ogni regola "
+                    + "gli stati allineati ai flussi (null se la regola non è presente nel flusso). "
+                    + "Lo storico è letto con un'unica query ed è in cache fino al completamento di un "
+                    + "nuovo flusso.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Restituito lo storico per Codice IPA."),
+            @ApiResponse(responseCode = "400", description = "Lista dei Codici IPA assente o troppo lunga.",
+                    content = @Content)
+    })
+    @GetMapping(ApiRoutes.CODICE_IPA_HISTORY)
+    public ResponseEntity<List<CompanyHistoryDto>> codiceIpaHistory(
+            @RequestParam(value = "codiceIpa") List<String> codiceIpa,
+            @RequestParam(value = "workflows", defaultValue = "10") Integer workflows) {
+        List<String> codiciIpa = codiceIpa.stream()
+                .filter(s -> s != null && !s.isEmpty())
+                .distinct()
+                .toList();
+        if (codiciIpa.isEmpty() || codiciIpa.size() > HISTORY_MAX_CODICI_IPA) {
+            return ResponseEntity.badRequest().build();
+        }
+        int maxWorkflows = Math.max(1, Math.min(workflows, HISTORY_MAX_WORKFLOWS));
+        log.debug("Richiesto lo storico di {} codici IPA negli ultimi {} flussi", codiciIpa.size(), maxWorkflows);
+        return ResponseEntity.ok().body(companyHistoryService.history(codiciIpa, maxWorkflows));
+    }
+
     @Operation(
             summary = "Conteggio dei risultati di validazione presenti nel sistema per Codice IPA.",
             description = "Sono restitutite le informazione dell'ultimo flusso eseguito insieme al totale rispetto ai codici di stato richiesti.")
@@ -215,7 +360,7 @@ public class ResultController {
     public ResponseEntity<BadgeResponse> codiceIpaCount(
             @RequestParam(value = "codiceIpa") String codiceIpa,
             @RequestParam(value = "status", required = false) List<Integer> status) {
-        String workflowId = resultDao.lastResultForCodiceIpa(codiceIpa).map(Result::getWorkflowId)
+        String workflowId = resultDao.lastWorkflowIdForCodiceIpa(codiceIpa)
                 .orElseThrow(() -> new EntityNotFoundException("Nessun workflow trovato per codiceIpa = " + codiceIpa));
         Long count = resultDao.count(codiceIpa, workflowId, status);
         Workflow workflow = workflowRepository.findByWorkflowId(workflowId);
@@ -226,6 +371,37 @@ public class ResultController {
         return ResponseEntity.ok().body(BadgeResponse.of(workflowId, workflow.getRootRule(), count));
     }
 
+    @Operation(
+            summary = "Ricerca degli enti per similarità su denominazione e codice fiscale.",
+            description = "Gli enti presenti nei risultati sono restituiti ordinati per similarità "
+                    + "decrescente rispetto al testo cercato, anche parziale, utile per i suggerimenti "
+                    + "durante la digitazione. La soglia minima di similarità (tra 0 e 1) è configurabile "
+                    + "e può essere indicata nel parametro 'threshold'.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Restituita la lista degli enti trovati."),
+            @ApiResponse(responseCode = "400",
+                    description = "Soglia di similarità non valida.",
+                    content = @Content)
+    })
+    @GetMapping(ApiRoutes.COMPANIES_SEARCH)
+    public ResponseEntity<List<CompanySearchDto>> searchCompanies(
+            @RequestParam("q") String text,
+            @RequestParam("workflowId") Optional<String> workflowId,
+            @RequestParam("threshold") Optional<Double> threshold,
+            @RequestParam(value = "limit", defaultValue = "20") Integer limit) {
+        if (threshold.isPresent() && (threshold.get() < 0 || threshold.get() > 1)) {
+            throw new IllegalArgumentException("La soglia di similarità deve essere compresa tra 0 e 1");
+        }
+        if (text.isBlank()) {
+            return ResponseEntity.ok().body(List.of());
+        }
+        int maxResults = Math.max(1, Math.min(limit, COMPANIES_SEARCH_MAX_RESULTS));
+        return ResponseEntity.ok().body(
+                resultDao.searchCompanies(text.trim(), workflowId.filter(s -> !s.isEmpty()),
+                        threshold, maxResults));
+    }
+
     @Operation(
             summary = "Visualizzazione dei risultati di validazione presenti nel sistema, filtrabili "
                     + "utilizzando alcuni parametri.",
@@ -237,39 +413,139 @@ public class ResultController {
     @GetMapping(ApiRoutes.LIST_ALL)
     public ResponseEntity<List<ResultShowDto>> listAll(
             @RequestParam("idIpa") Optional<Long> idIpa,
-            @RequestParam("codiceCategoria") Optional<String> codiceCategoria,
+            @RequestParam("codiceCategoria") Optional<List<String>> codiceCategoria,
             @RequestParam("codiceFiscaleEnte") Optional<String> codiceFiscaleEnte,
-            @RequestParam("codiceIpa") Optional<String> codiceIpa,
+            @RequestParam("codiceIpa") Optional<List<String>> codiceIpa,
             @RequestParam("denominazioneEnte") Optional<String> denominazioneEnte,
-            @RequestParam("ruleName") Optional<String> ruleName,
+            @RequestParam("ruleName") Optional<List<String>> ruleName,
             @RequestParam("isLeaf") Optional<Boolean> isLeaf,
-            @RequestParam("status") Optional<Integer> status,
-            @RequestParam("workflowId") String workflowId,
+            @RequestParam("status") Optional<List<Integer>> status,
+            @RequestParam("workflowId") List<String> workflowId,
             @RequestParam("createdAfter") Optional<LocalDate> createdAfter,
             @RequestParam("realUrlValid") Optional<Boolean> realURLValid,
             @Parameter(required = false, allowEmptyValue = true) Sort sort) {
-        codiceCategoria = codiceCategoria.isPresent() && codiceCategoria.get().isEmpty() ?
-                Optional.empty() : codiceCategoria;
+        codiceCategoria = nonEmpty(codiceCategoria);
         List<ResultShowDto> results = resultDao.find(idIpa, codiceCategoria, codiceFiscaleEnte, codiceIpa,
-                        denominazioneEnte, ruleName, isLeaf, status, Optional.of(workflowId), createdAfter, sort)
-                .stream().map(mapper::convert).collect(Collectors.toList());
+                        denominazioneEnte, ruleName, isLeaf, status, Optional.of(workflowId), createdAfter, sort,
+                        ResultProjections.show())
+                .stream().map(ResultProjections::withDestinationUrl).collect(Collectors.toList());
         if (realURLValid.isPresent() && realURLValid.get()) {
             results = results
                     .stream()
-                    .filter(rsd -> Optional.ofNullable(rsd.getRealUrl()).filter(s -> !s.isEmpty()).isPresent())
-                    .filter(rsd -> {
-                        try {
-                            new URL(rsd.getRealUrl());
-                            return true;
-                        } catch (MalformedURLException e) {
-                            return false;
-                        }
-                    })
+                    .filter(ResultController::hasValidRealUrl)
                     .toList();
         }
         return ResponseEntity.ok().body(results);
     }
 
+    @Operation(
+            summary = "Visualizzazione dei risultati di validazione presenti nel sistema, filtrabili "
+                    + "utilizzando alcuni parametri, scritti in streaming.",
+            description = "Sono restitutite tutte informazioni, in modo non paginato, come array JSON "
+                    + "oppure in formato NDJSON (un risultato per riga) se richiesto tramite l'header "
+                    + "Accept: application/x-ndjson. I risultati sono letti dal database e scritti "
+                    + "sulla risposta uno alla volta, la memoria utilizzata non dipende dal loro numero.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Restitutita la lista risultati di validazione presenti.")
+    })
+    @GetMapping(value = ApiRoutes.LIST_ALL_STREAM,
+            produces = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public void listAllStream(
+            HttpServletResponse servletResponse,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            @RequestParam("idIpa") Optional<Long> idIpa,
+            @RequestParam("codiceCategoria") Optional<List<String>> codiceCategoria,
+            @RequestParam("codiceFiscaleEnte") Optional<String> codiceFiscaleEnte,
+            @RequestParam("codiceIpa") Optional<List<String>> codiceIpa,
+            @RequestParam("denominazioneEnte") Optional<String> denominazioneEnte,
+            @RequestParam("ruleName") Optional<List<String>> ruleName,
+            @RequestParam("isLeaf") Optional<Boolean> isLeaf,
+            @RequestParam("status") Optional<List<Integer>> status,
+            @RequestParam("workflowId") List<String> workflowId,
+            @RequestParam("createdAfter") Optional<LocalDate> createdAfter,
+            @RequestParam("realUrlValid") Optional<Boolean> realURLValid,
+            @Parameter(required = false, allowEmptyValue = true) Sort sort) throws IOException {
+        Optional<List<String>> categoria = nonEmpty(codiceCategoria);
+        boolean ndjson = accept != null && accept.contains(MediaType.APPLICATION_NDJSON_VALUE);
+        boolean onlyValidRealUrl = realURLValid.isPresent() && realURLValid.get();
+
+        servletResponse.setContentType(ndjson ? MediaType.APPLICATION_NDJSON_VALUE : MediaType.APPLICATION_JSON_VALUE);
+        servletResponse.setCharacterEncoding("UTF-8");
+
+        resultStreamService.writeJson(
+                () -> resultDao.stream(idIpa, categoria, codiceFiscaleEnte, codiceIpa,
+                        denominazioneEnte, ruleName, isLeaf, status, Optional.of(workflowId), createdAfter, sort,
+                        ResultProjections.show())
+                        .map(ResultProjections::withDestinationUrl),
+                rsd -> !onlyValidRealUrl || hasValidRealUrl(rsd),
+                ndjson, servletResponse.getOutputStream());
+    }
+
+    @Operation(
+            summary = "Confronto tra i risultati di due flussi.",
+            description = "Sono restituite solo le coppie (regola, ente) aggiunte, rimosse o con stato "
+                    + "cambiato passando dal flusso from al flusso to, in formato NDJSON (una differenza "
+                    + "per riga) oppure CSV con il parametro format=csv. I risultati dei due flussi sono "
+                    + "letti e confrontati in streaming, la memoria utilizzata non dipende dal loro numero.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Restituite le differenze tra i due flussi.")
+    })
+    @GetMapping(value = ApiRoutes.DIFF, produces = { MediaType.APPLICATION_NDJSON_VALUE, "text/csv" })
+    public void diff(
+            HttpServletResponse servletResponse,
+            @RequestParam("fromWorkflowId") String fromWorkflowId,
+            @RequestParam("toWorkflowId") String toWorkflowId,
+            @RequestParam(value = "format", defaultValue = "ndjson") String format) throws IOException {
+        boolean csv = "csv".equalsIgnoreCase(format);
+        if (csv) {
+            servletResponse.setContentType("text/csv");
+            servletResponse.setHeader("Content-Disposition", "attachment; filename=\"diff.csv\"");
+        } else {
+            servletResponse.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        }
+        servletResponse.setCharacterEncoding("UTF-8");
+        resultDiffService.writeDiff(fromWorkflowId, toWorkflowId, csv, servletResponse.getOutputStream());
+    }
+
+    /**
+     * Pubblica un {@link ResultsChangedEvent} per ciascun flusso dei risultati modificati.
+     */
+    private void publishResultsChanged(Collection<Result> results, boolean deleted) {
+        results.stream()
+                .filter(result -> result.getWorkflowId() != null)
+                .collect(Collectors.groupingBy(Result::getWorkflowId,
+                        Collectors.mapping(result -> result.getCompany() != null ? result.getCompany().getCodiceIpa() : null,
+                                Collectors.filtering(Objects::nonNull, Collectors.toSet()))))
+                .forEach((workflowId, codiciIpa) -> {
+                    if (!codiciIpa.isEmpty()) {
+                        eventPublisher.publishEvent(new ResultsChangedEvent(workflowId, codiciIpa, deleted));
+                    }
+                });
+    }
+
+    /**
+     * Elimina dal filtro i valori vuoti, se non ne restano il filtro non è applicato.
+     */
+    private static Optional<List<String>> nonEmpty(Optional<List<String>> values) {
+        return values
+                .map(list -> list.stream().filter(s -> s != null && !s.isEmpty()).toList())
+                .filter(list -> !list.isEmpty());
+    }
+
+    private static boolean hasValidRealUrl(ResultShowDto rsd) {
+        if (Optional.ofNullable(rsd.getRealUrl()).filter(s -> !s.isEmpty()).isEmpty()) {
+            return false;
+        }
+        try {
+            new URL(rsd.getRealUrl());
+            return true;
+        } catch (MalformedURLException e) {
+            return false;
+        }
+    }
+
     @Operation(
             summary = "Creazione di un risultato di validazione.",
             description = "Questa è la creazione di risultato di validazione.")
@@ -284,6 +560,7 @@ public class ResultController {
         val result = dtoToEntityConverter.createEntity(resultDto);
         resultRepository.save(result);
         log.info("Creato Result {}", result);
+        publishResultsChanged(List.of(result), false);
         return ResponseEntity.status(HttpStatus.CREATED).body(mapper.convert(result));
     }
 
@@ -301,6 +578,7 @@ public class ResultController {
         val result = dtoToEntityConverter.createBulkEntity(resultDto);
         resultRepository.saveAll(result);
         log.info("Creato Result {}", result);
+        publishResultsChanged(result, false);
         return ResponseEntity.status(HttpStatus.CREATED).body(mapper.convert(result));
     }
 
@@ -316,6 +594,7 @@ public class ResultController {
         val result = dtoToEntityConverter.updateEntity(resultDto);
         resultRepository.save(result);
         log.info("Aggiornato risultato, i nuovi dati sono {}", result);
+        publishResultsChanged(List.of(result), false);
         return ResponseEntity.ok().body(mapper.convert(result));
     }
 
@@ -335,7 +614,7 @@ public class ResultController {
         log.info("Eliminato definitivamente result {}", result);
         //Elimino eventuali sorgenti e screenshot dal Minio
         minioService.deleteStorageData(result.getStorageData());
-        cachingService.evictResultsCachesAtIntervals();
+        publishResultsChanged(List.of(result), true);
         return ResponseEntity.ok().build();
     }
 
@@ -355,7 +634,8 @@ public class ResultController {
         val deleted = resultRepository.deleteByWorkflowId(id);
         log.info("Eliminati definitivamente {} risultati del workflowId {}", deleted, id);
 
-        cachingService.evictResultsCachesAtIntervals();
+        eventPublisher.publishEvent(new WorkflowChangedEvent(id, null, null, true));
+        eventPublisher.publishEvent(new ResultsChangedEvent(id, Set.of(), true));
 
         //Avvio la rimozione asincrona degli eventuali oggetti (sorgente e screenshot) salvati nel Minio
         minioService.removeObjects(resultDao.storageDataByWorkflowId(id));
@@ -377,14 +657,14 @@ public class ResultController {
     public void listAsCsv(
             HttpServletResponse servletResponse,
             @RequestParam("idIpa") Optional<Long> idIpa,
-            @RequestParam("codiceCategoria") Optional<String> codiceCategoria,
+            @RequestParam("codiceCategoria") Optional<List<String>> codiceCategoria,
             @RequestParam("codiceFiscaleEnte") Optional<String> codiceFiscaleEnte,
-            @RequestParam("codiceIpa") Optional<String> codiceIpa,
+            @RequestParam("codiceIpa") Optional<List<String>> codiceIpa,
             @RequestParam("denominazioneEnte") Optional<String> denominazioneEnte,
-            @RequestParam("ruleName") Optional<String> ruleName,
+            @RequestParam("ruleName") Optional<List<String>> ruleName,
             @RequestParam("isLeaf") Optional<Boolean> isLeaf,
-            @RequestParam("status") Optional<Integer> status,
-            @RequestParam("workflowId") Optional<String> workflowId,
+            @RequestParam("status") Optional<List<Integer>> status,
+            @RequestParam("workflowId") Optional<List<String>> workflowId,
             @RequestParam("createdAfter") Optional<LocalDate> createdAfter,
             @RequestParam("terse") Optional<Boolean> terse,
             @Parameter(required = false, allowEmptyValue = true) Sort sort) throws IOException {
@@ -392,18 +672,21 @@ public class ResultController {
         servletResponse.setContentType("text/csv");
         servletResponse.setHeader("Content-Disposition", "attachment; filename=\"results.csv\"");
 
-        codiceCategoria = codiceCategoria.isPresent() && codiceCategoria.get().isEmpty() ? Optional.empty() : codiceCategoria;
+        Optional<List<String>> categoria = nonEmpty(codiceCategoria);
 
         if (terse.isPresent() && terse.get()) {
-            val results = resultDao.find(idIpa, codiceCategoria, codiceFiscaleEnte, codiceIpa,
-                            denominazioneEnte, ruleName, isLeaf, status, workflowId, createdAfter, sort)
-                    .stream().map(mapper::convertCsvTerse).collect(Collectors.toList());
-            csvExportService.resultsToCsvTerseStream(results, servletResponse.getOutputStream());
+            csvExportService.resultsToCsvTerseStream(
+                    () -> resultDao.stream(idIpa, categoria, codiceFiscaleEnte, codiceIpa,
+                            denominazioneEnte, ruleName, isLeaf, status, workflowId, createdAfter, sort,
+                            ResultProjections.csvTerse()),
+                    servletResponse.getOutputStream());
         } else {
-            val results = resultDao.find(idIpa, codiceCategoria, codiceFiscaleEnte, codiceIpa,
-                            denominazioneEnte, ruleName, isLeaf, status, workflowId, createdAfter, sort)
-                    .stream().map(mapper::convertCsv).collect(Collectors.toList());
-            csvExportService.resultsToCsvStream(results, servletResponse.getOutputStream());
+            csvExportService.resultsToCsvStream(
+                    () -> resultDao.stream(idIpa, categoria, codiceFiscaleEnte, codiceIpa,
+                            denominazioneEnte, ruleName, isLeaf, status, workflowId, createdAfter, sort,
+                            ResultProjections.csv())
+                            .map(ResultProjections::withDestinationUrl),
+                    servletResponse.getOutputStream());
         }
     }
     @Operation(
@@ -423,29 +706,28 @@ public class ResultController {
             @RequestParam("terse") Optional<Boolean> terse,
             @Parameter(required = false, allowEmptyValue = true) Sort sort) throws IOException {
 
-        Optional<Result> lastResult = resultDao.lastResult();
-        Optional<String> lastWorkflowId = lastResult.isPresent()
-                ? Optional.of(lastResult.get().getWorkflowId()) : Optional.empty();
+        Optional<String> lastWorkflowId = resultDao.lastWorkflowId();
 
         servletResponse.setContentType("text/csv");
         servletResponse.setHeader("Content-Disposition", "attachment; filename=\"results.csv\"");
 
         if (terse.isPresent() && terse.get()) {
-            val results = resultDao.find(Optional.empty(), Optional.empty(),
+            csvExportService.resultsToCsvTerseStream(
+                    () -> resultDao.stream(Optional.empty(), Optional.empty(),
                             Optional.empty(), Optional.empty(),
                             Optional.empty(), Optional.empty(),
                             Optional.empty(), Optional.empty(),
-                            lastWorkflowId, Optional.empty(), sort)
-                    .stream().map(mapper::convertCsvTerse).collect(Collectors.toList());
-            csvExportService.resultsToCsvTerseStream(results, servletResponse.getOutputStream());
+                            lastWorkflowId.map(List::of), Optional.empty(), sort, ResultProjections.csvTerse()),
+                    servletResponse.getOutputStream());
         } else {
-            val results = resultDao.find(Optional.empty(), Optional.empty(),
+            csvExportService.resultsToCsvStream(
+                    () -> resultDao.stream(Optional.empty(), Optional.empty(),
                             Optional.empty(), Optional.empty(),
                             Optional.empty(), Optional.empty(),
                             Optional.empty(), Optional.empty(),
-                            lastWorkflowId, Optional.empty(), sort)
-                    .stream().map(mapper::convertCsv).collect(Collectors.toList());
-            csvExportService.resultsToCsvStream(results, servletResponse.getOutputStream());
+                            lastWorkflowId.map(List::of), Optional.empty(), sort, ResultProjections.csv())
+                            .map(ResultProjections::withDestinationUrl),
+                    servletResponse.getOutputStream());
         }
     }
 
@@ -533,6 +815,40 @@ public class ResultController {
         return ResponseEntity.ok().body(map);
     }
 
+    @Operation(
+            summary = "Visualizzazione le statistiche per flusso, lista di stati e numero di regole con un min e max, "
+                    + "con paginazione tramite cursore.",
+            description = "Gli enti sono ordinati per idIpa. Il campo next della risposta contiene il cursore "
+                    + "da passare nel parametro after per ottenere la pagina successiva.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Restituiti i risultati richiesti."),
+            @ApiResponse(responseCode = "400",
+                    description = "Cursore non valido.",
+                    content = @Content)
+    })
+    @GetMapping("/companiesByWorkflowAndStatus" + ApiRoutes.LIST_KEYSET)
+    public ResponseEntity<CursorPageDto<ResultShowDto>> companiesByWorkflowAndStatusWithOccurencesBetweenKeyset(
+            @RequestParam(value = "workflowId") String workflowId,
+            @RequestParam(value = "status") List<Integer> status,
+            @RequestParam(value = "minNumberOfRules") Integer minNumberOfRules,
+            @RequestParam(value = "maxNumberOfRules") Integer maxNumberOfRules,
+            @RequestParam(value = "denominazioneEnte", required = false) String denominazioneEnte,
+            @RequestParam(value = "codiceFiscaleEnte", required = false) String codiceFiscaleEnte,
+            @RequestParam(value = "codiceIpa", required = false) String codiceIpa,
+            @RequestParam(value = "codiceCategoria", required = false) String codiceCategoria,
+            @RequestParam("after") Optional<String> after,
+            @RequestParam(value = "size", defaultValue = "100") Integer size
+    ) {
+        int pageSize = Math.max(1, Math.min(size, KEYSET_MAX_PAGE_SIZE));
+        CursorPageDto<ResultShowDto> companies = resultDao.findCompaniesByWorkflowAndStatusWithOccurencesBetweenAfter(
+                workflowId, status, minNumberOfRules, maxNumberOfRules,
+                denominazioneEnte, codiceFiscaleEnte, codiceIpa, codiceCategoria,
+                after.filter(s -> !s.isEmpty()).map(ResultCursor::decode), pageSize
+        ).map(mapper::convert);
+        return ResponseEntity.ok().body(companies);
+    }
+
     @Operation(
             summary = "Visualizzazione delle informazioni presenti nel sistema ragruppate per categorie predefinite filtrando per flusso e stato della regola applicata.")
     @ApiResponses(value = {
@@ -542,11 +858,15 @@ public class ResultController {
     @GetMapping("/countResultsAndGroupByCategoriesWidthWorkflowIdAndStatus")
     public ResponseEntity<List<CategoryValueDto>> countResultsAndGroupByCategoriesWidthWorkflowIdAndStatus(
             @RequestParam(value = "workflowId") String workflowId,
-            @RequestParam(value = "status") List<Integer> status) {
-
-        return ResponseEntity.ok().body(
-                resultDao.countResultsAndGroupByCategoriesWidthWorkflowIdAndStatus(workflowId, status)
-        );
+            @RequestParam(value = "status") List<Integer> status,
+            @RequestParam("noCache") Optional<Boolean> noCache) {
+        List<CategoryValueDto> categories = null;
+        if (noCache.isEmpty() || noCache.get().equals(Boolean.FALSE)) {
+            categories = resultDao.countResultsAndGroupByCategoriesWidthWorkflowIdAndStatusWithCache(workflowId, Set.copyOf(status));
+        } else {
+            categories = resultDao.countResultsAndGroupByCategoriesWidthWorkflowIdAndStatus(workflowId, Set.copyOf(status));
+        }
+        return ResponseEntity.ok().body(categories);
     }
 
     public record BadgeResponse(String workflowId, String rule, Long total) {
@@ -23,6 +23,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import it.cnr.anac.transparency.result.events.WorkflowChangedEvent;
 import it.cnr.anac.transparency.result.models.Workflow;
 import it.cnr.anac.transparency.result.repositories.WorkflowDao;
 import it.cnr.anac.transparency.result.repositories.WorkflowRepository;
@@ -34,6 +35,7 @@ import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
@@ -60,6 +62,7 @@ public class WorkflowController {
     private final WorkflowMapper mapper;
     private final WorkflowDao workflowDao;
     private final WorkflowDtoToEntityConverter dtoToEntityConverter;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Operation(
             summary = "Visualizzazione delle informazioni di un workflow di validazione.")
@@ -133,6 +136,7 @@ public class WorkflowController {
         val result = dtoToEntityConverter.createEntity(workflowDto);
         workflowRepository.save(result);
         log.info("Creato Result {}", result);
+        eventPublisher.publishEvent(new WorkflowChangedEvent(result.getWorkflowId(), null, result.getStatus(), false));
         return ResponseEntity.status(HttpStatus.CREATED).body(mapper.convert(result));
     }
 
@@ -145,9 +149,14 @@ public class WorkflowController {
     @PostMapping(ApiRoutes.UPDATE)
     public ResponseEntity<WorkflowShowDto> update(@NotNull @Valid @RequestBody WorkflowUpdateDto workflowDto) {
         log.debug("WorkflowController::update workflowDto = {}", workflowDto);
+        // Stato precedente all'aggiornamento, per notificare solo i cambi di stato effettivi
+        val previousStatus = workflowRepository.findById(workflowDto.getId())
+                .map(Workflow::getStatus).orElse(null);
         val result = dtoToEntityConverter.updateEntity(workflowDto);
         workflowRepository.save(result);
         log.info("Aggiornato workflow, i nuovi dati sono {}", result);
+        eventPublisher.publishEvent(
+                new WorkflowChangedEvent(result.getWorkflowId(), previousStatus, result.getStatus(), false));
         return ResponseEntity.ok().body(mapper.convert(result));
     }
 
@@ -164,6 +173,8 @@ public class WorkflowController {
                 .orElseThrow(() -> new EntityNotFoundException("Workflow non trovato con id = " + id));
         workflowRepository.delete(workflow);
         log.info("Eliminato definitivamente workflow {}", workflow);
+        eventPublisher.publishEvent(
+                new WorkflowChangedEvent(workflow.getWorkflowId(), workflow.getStatus(), null, true));
         return ResponseEntity.ok().build();
     }
 
@@ -179,6 +190,7 @@ public class WorkflowController {
         log.debug("WorkflowController::deleteByWorkflowId workflowId = {}", id);
         workflowRepository.deleteByWorkflowId(id);
         log.info("Eliminato definitivamente workflow con workflowId = {}", id);
+        eventPublisher.publishEvent(new WorkflowChangedEvent(id, null, null, true));
         return ResponseEntity.ok().build();
     }
 }
@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.v1.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Risultati dell'ultimo flusso completato per un codice IPA. Se per il codice IPA
+ * non è presente nessun flusso completato il workflowId è null e la lista dei
+ * risultati è vuota.
+ */
+@ToString
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CodiceIpaResultsDto {
+
+  private String codiceIpa;
+  private String workflowId;
+  private List<ResultShowDto> results;
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.v1.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Storico degli stati delle regole di un codice IPA negli ultimi flussi completati, come
+ * matrice flusso × regola: per ogni regola la lista degli stati è allineata alla lista
+ * dei flussi, con null se la regola non è presente nel flusso.
+ */
+@ToString
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompanyHistoryDto {
+
+  private String codiceIpa;
+  // Flussi dal più recente
+  private List<WorkflowRun> workflows;
+  // Stati per regola, nello stesso ordine dei flussi
+  private Map<String, List<Integer>> statuses;
+
+  @Data
+  @NoArgsConstructor
+  @AllArgsConstructor
+  public static class WorkflowRun {
+    private String workflowId;
+    private LocalDateTime completedAt;
+  }
+
+}
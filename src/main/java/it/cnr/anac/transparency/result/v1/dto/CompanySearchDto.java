@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.v1.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Ente restituito dalla ricerca per similarità su denominazione e codice fiscale,
+ * con il valore di similarità rispetto al testo cercato (tra 0 e 1).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompanySearchDto {
+    private String codiceIpa;
+    private Long idIpa;
+    private String denominazioneEnte;
+    private String codiceFiscaleEnte;
+    private String codiceCategoria;
+    private Double similarity;
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.v1.dto;
+
+import it.cnr.anac.transparency.result.models.CompanyWorkflowScore;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+/**
+ * Mapping dei punteggi degli enti per flusso nel DTO di visualizzazione, la categoria
+ * va impostata a partire dalla sua posizione nella lista delle categorie configurate.
+ */
+@Mapper(componentModel = "spring")
+public interface CompanyWorkflowScoreMapper {
+
+    @Mapping(target = "category", ignore = true)
+    CompanyWorkflowScoreShowDto convert(CompanyWorkflowScore score);
+
+}
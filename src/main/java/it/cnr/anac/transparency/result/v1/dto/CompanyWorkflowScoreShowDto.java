@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.v1.dto;
+
+import lombok.Data;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Data transfer object per il punteggio di un ente in un flusso.
+ */
+@ToString
+@Data
+public class CompanyWorkflowScoreShowDto {
+
+  private String workflowId;
+  private Long idIpa;
+  private String codiceIpa;
+  private String denominazioneEnte;
+  private String codiceCategoria;
+  private Integer passed;
+  private Integer failed;
+  private Map<String, Long> statusCounts;
+  // Categoria configurata in cui rientra il numero di regole superate
+  private RuleDto category;
+  private Boolean finalized;
+  private LocalDateTime updatedAt;
+
+}
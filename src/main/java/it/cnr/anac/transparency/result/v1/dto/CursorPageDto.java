@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.v1.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.ToString;
+
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Pagina di elementi ottenuta tramite paginazione con cursore.
+ * Il campo next contiene il cursore opaco da utilizzare per richiedere la pagina
+ * successiva, null se non ci sono altri elementi.
+ */
+@ToString
+@Data
+@AllArgsConstructor
+public class CursorPageDto<T> {
+
+  private List<T> content;
+  private int size;
+  private String next;
+
+  public <U> CursorPageDto<U> map(Function<? super T, ? extends U> converter) {
+    return new CursorPageDto<>(
+        content.stream().map(converter).collect(Collectors.toList()), size, next);
+  }
+}
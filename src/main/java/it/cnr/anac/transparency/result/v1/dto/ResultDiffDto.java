@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result.v1.dto;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Differenza di stato di una coppia (regola, ente) tra due flussi.
+ */
+@JsonPropertyOrder(
+    { "change", "ruleName", "idIpa", "codiceIpa", "denominazioneEnte", "fromStatus", "toStatus" })
+@ToString
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultDiffDto {
+
+  public enum Change {
+    // Presente solo nel secondo flusso
+    ADDED,
+    // Presente solo nel primo flusso
+    REMOVED,
+    // Presente in entrambi i flussi con stato diverso
+    CHANGED
+  }
+
+  private Change change;
+  private String ruleName;
+  private Long idIpa;
+  private String codiceIpa;
+  private String denominazioneEnte;
+  private Integer fromStatus;
+  private Integer toStatus;
+
+}
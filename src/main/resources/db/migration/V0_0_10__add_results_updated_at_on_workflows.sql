@@ -0,0 +1,5 @@
+ALTER TABLE workflows ADD COLUMN IF NOT EXISTS results_updated_at TIMESTAMP WITHOUT TIME ZONE;
+
+UPDATE workflows w SET results_updated_at = r.updated_at
+FROM (SELECT workflow_id, max(updated_at) AS updated_at FROM results GROUP BY workflow_id) r
+WHERE r.workflow_id = w.workflow_id;
@@ -0,0 +1,60 @@
+CREATE TABLE IF NOT EXISTS result_status_counts (
+    workflow_id TEXT NOT NULL,
+    rule_name TEXT NOT NULL DEFAULT '',
+    status INTEGER NOT NULL,
+    n BIGINT NOT NULL,
+    PRIMARY KEY (workflow_id, rule_name, status));
+
+-- I conteggi sono aggiornati con i delta di ciascuna istruzione sulla tabella results,
+-- nella stessa transazione della modifica. Le righe sono aggiornate in ordine di chiave
+-- per evitare deadlock tra inserimenti concorrenti dello stesso flusso.
+CREATE OR REPLACE FUNCTION result_status_counts_apply() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO result_status_counts AS c (workflow_id, rule_name, status, n)
+        SELECT workflow_id, coalesce(rule_name, ''), status, count(*) FROM new_rows
+        WHERE workflow_id IS NOT NULL AND status IS NOT NULL
+        GROUP BY 1, 2, 3 ORDER BY 1, 2, 3
+        ON CONFLICT (workflow_id, rule_name, status) DO UPDATE SET n = c.n + EXCLUDED.n;
+    ELSIF TG_OP = 'UPDATE' THEN
+        INSERT INTO result_status_counts AS c (workflow_id, rule_name, status, n)
+        SELECT workflow_id, rule_name, status, sum(delta) FROM (
+            SELECT workflow_id, coalesce(rule_name, '') AS rule_name, status, 1 AS delta FROM new_rows
+            UNION ALL
+            SELECT workflow_id, coalesce(rule_name, ''), status, -1 FROM old_rows) d
+        WHERE workflow_id IS NOT NULL AND status IS NOT NULL
+        GROUP BY 1, 2, 3 HAVING sum(delta) <> 0 ORDER BY 1, 2, 3
+        ON CONFLICT (workflow_id, rule_name, status) DO UPDATE SET n = c.n + EXCLUDED.n;
+    ELSE
+        INSERT INTO result_status_counts AS c (workflow_id, rule_name, status, n)
+        SELECT workflow_id, coalesce(rule_name, ''), status, -count(*) FROM old_rows
+        WHERE workflow_id IS NOT NULL AND status IS NOT NULL
+        GROUP BY 1, 2, 3 ORDER BY 1, 2, 3
+        ON CONFLICT (workflow_id, rule_name, status) DO UPDATE SET n = c.n + EXCLUDED.n;
+    END IF;
+    IF TG_OP <> 'INSERT' THEN
+        DELETE FROM result_status_counts c
+        USING (SELECT DISTINCT workflow_id, coalesce(rule_name, '') AS rule_name, status FROM old_rows) o
+        WHERE c.workflow_id = o.workflow_id AND c.rule_name = o.rule_name AND c.status = o.status
+            AND c.n <= 0;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER result_status_counts_insert AFTER INSERT ON results
+    REFERENCING NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION result_status_counts_apply();
+
+CREATE TRIGGER result_status_counts_update AFTER UPDATE ON results
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION result_status_counts_apply();
+
+CREATE TRIGGER result_status_counts_delete AFTER DELETE ON results
+    REFERENCING OLD TABLE AS old_rows
+    FOR EACH STATEMENT EXECUTE FUNCTION result_status_counts_apply();
+
+INSERT INTO result_status_counts (workflow_id, rule_name, status, n)
+SELECT workflow_id, coalesce(rule_name, ''), status, count(*) FROM results
+WHERE workflow_id IS NOT NULL AND status IS NOT NULL
+GROUP BY 1, 2, 3;
@@ -0,0 +1,17 @@
+CREATE TABLE IF NOT EXISTS company_workflow_score (
+    workflow_id TEXT NOT NULL,
+    id_ipa BIGINT NOT NULL,
+    codice_ipa TEXT,
+    denominazione_ente TEXT,
+    codice_categoria TEXT,
+    passed INTEGER NOT NULL,
+    failed INTEGER NOT NULL,
+    status_counts JSONB NOT NULL,
+    category INTEGER,
+    finalized BOOLEAN NOT NULL DEFAULT FALSE,
+    updated_at TIMESTAMP WITHOUT TIME ZONE,
+    PRIMARY KEY (workflow_id, id_ipa));
+
+CREATE INDEX codice_ipa_company_workflow_score_key ON company_workflow_score(workflow_id, codice_ipa);
+CREATE INDEX passed_company_workflow_score_key ON company_workflow_score(workflow_id, passed);
+CREATE INDEX category_company_workflow_score_key ON company_workflow_score(workflow_id, category);
@@ -0,0 +1 @@
+CREATE INDEX workflow_id_id_ipa_results_key ON results(workflow_id, id_ipa);
@@ -0,0 +1 @@
+ALTER TABLE workflows ADD COLUMN IF NOT EXISTS results_version BIGINT NOT NULL DEFAULT 0;
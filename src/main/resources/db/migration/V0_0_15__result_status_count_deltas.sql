@@ -0,0 +1,65 @@
+-- Le variazioni dei conteggi di ciascuna istruzione sulla tabella results sono accodate in
+-- result_status_count_deltas senza aggiornare righe esistenti, quindi gli inserimenti
+-- concorrenti dello stesso flusso non si attendono sui lock delle stesse righe.
+-- Le variazioni sono periodicamente sommate in result_status_counts da
+-- result_status_counts_merge() e la vista result_status_totals somma le due tabelle.
+CREATE TABLE IF NOT EXISTS result_status_count_deltas (
+    workflow_id TEXT NOT NULL,
+    rule_name TEXT NOT NULL DEFAULT '',
+    status INTEGER NOT NULL,
+    n BIGINT NOT NULL);
+
+CREATE INDEX workflow_id_result_status_count_deltas_key ON result_status_count_deltas(workflow_id);
+
+CREATE OR REPLACE FUNCTION result_status_counts_apply() RETURNS trigger AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO result_status_count_deltas (workflow_id, rule_name, status, n)
+        SELECT workflow_id, coalesce(rule_name, ''), status, count(*) FROM new_rows
+        WHERE workflow_id IS NOT NULL AND status IS NOT NULL
+        GROUP BY 1, 2, 3;
+    ELSIF TG_OP = 'UPDATE' THEN
+        INSERT INTO result_status_count_deltas (workflow_id, rule_name, status, n)
+        SELECT workflow_id, rule_name, status, sum(delta) FROM (
+            SELECT workflow_id, coalesce(rule_name, '') AS rule_name, status, 1 AS delta FROM new_rows
+            UNION ALL
+            SELECT workflow_id, coalesce(rule_name, ''), status, -1 FROM old_rows) d
+        WHERE workflow_id IS NOT NULL AND status IS NOT NULL
+        GROUP BY 1, 2, 3 HAVING sum(delta) <> 0;
+    ELSE
+        INSERT INTO result_status_count_deltas (workflow_id, rule_name, status, n)
+        SELECT workflow_id, coalesce(rule_name, ''), status, -count(*) FROM old_rows
+        WHERE workflow_id IS NOT NULL AND status IS NOT NULL
+        GROUP BY 1, 2, 3;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Somma in result_status_counts le variazioni già confermate e le elimina, in un'unica
+-- istruzione: le variazioni confermate nel frattempo restano per la prossima esecuzione.
+-- Restituisce il numero di variazioni sommate.
+CREATE OR REPLACE FUNCTION result_status_counts_merge() RETURNS bigint AS $$
+DECLARE
+    merged bigint;
+BEGIN
+    WITH moved AS (
+        DELETE FROM result_status_count_deltas RETURNING workflow_id, rule_name, status, n),
+    totals AS (
+        SELECT workflow_id, rule_name, status, sum(n) AS n, count(*) AS deltas FROM moved GROUP BY 1, 2, 3),
+    applied AS (
+        INSERT INTO result_status_counts AS c (workflow_id, rule_name, status, n)
+        SELECT workflow_id, rule_name, status, n FROM totals ORDER BY 1, 2, 3
+        ON CONFLICT (workflow_id, rule_name, status) DO UPDATE SET n = c.n + EXCLUDED.n)
+    SELECT coalesce(sum(deltas), 0) INTO merged FROM totals;
+    DELETE FROM result_status_counts WHERE n <= 0;
+    RETURN merged;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE VIEW result_status_totals AS
+SELECT workflow_id, rule_name, status, CAST(sum(n) AS BIGINT) AS n FROM (
+    SELECT workflow_id, rule_name, status, n FROM result_status_counts
+    UNION ALL
+    SELECT workflow_id, rule_name, status, n FROM result_status_count_deltas) c
+GROUP BY workflow_id, rule_name, status;
@@ -0,0 +1,3 @@
+CREATE INDEX workflow_id_id_results_key ON results(workflow_id, id);
+CREATE INDEX workflow_id_created_at_id_results_key ON results(workflow_id, created_at, id);
+CREATE INDEX workflow_id_updated_at_id_results_key ON results(workflow_id, updated_at, id);
@@ -0,0 +1,4 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX denominazione_ente_lower_trgm_results_key ON results USING gin (lower(denominazione_ente) gin_trgm_ops);
+CREATE INDEX codice_fiscale_ente_lower_trgm_results_key ON results USING gin (lower(codice_fiscale_ente) gin_trgm_ops);
@@ -0,0 +1,15 @@
+CREATE TABLE IF NOT EXISTS latest_workflows (
+    codice_ipa TEXT PRIMARY KEY,
+    workflow_id TEXT NOT NULL,
+    result_id BIGINT NOT NULL,
+    completed_at TIMESTAMP WITHOUT TIME ZONE);
+
+CREATE INDEX workflow_id_latest_workflows_key ON latest_workflows(workflow_id);
+
+INSERT INTO latest_workflows (codice_ipa, workflow_id, result_id, completed_at)
+(SELECT codice_ipa, workflow_id, id, completed_at FROM (
+    SELECT r.codice_ipa, r.workflow_id, r.id, w.updated_at AS completed_at,
+        row_number() OVER (PARTITION BY r.codice_ipa ORDER BY r.id DESC) AS position
+    FROM results r JOIN workflows w ON w.workflow_id = r.workflow_id
+    WHERE w.status = 'COMPLETED' AND r.codice_ipa IS NOT NULL) latest
+WHERE position = 1);
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.cnr.anac.transparency.result.config.CacheEvictions;
+import it.cnr.anac.transparency.result.config.CoalescingCache;
+import it.cnr.anac.transparency.result.services.WorkflowScopedKey;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+
+public class CoalescingCacheTest {
+
+  @Test
+  public void concurrentMissesRunOneComputation() throws Exception {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    CoalescingCache cache =
+        new CoalescingCache(new ConcurrentMapCache("results"), Duration.ofSeconds(10), meterRegistry);
+    AtomicInteger executions = new AtomicInteger();
+    CountDownLatch release = new CountDownLatch(1);
+    int callers = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(callers);
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      for (int i = 0; i < callers; i++) {
+        results.add(executor.submit(() -> cache.get("key", () -> {
+          executions.incrementAndGet();
+          release.await();
+          return "value";
+        })));
+      }
+      // Attende che tutti i chiamanti siano in attesa del primo calcolo
+      Thread.sleep(200);
+      release.countDown();
+      for (Future<String> result : results) {
+        Assertions.assertEquals("value", result.get(5, TimeUnit.SECONDS));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    Assertions.assertEquals(1, executions.get());
+    Assertions.assertEquals(callers - 1, meterRegistry.get("cache.coalesced").counter().count());
+  }
+
+  @Test
+  public void expiredWaitComputesTheValue() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    CoalescingCache cache =
+        new CoalescingCache(new ConcurrentMapCache("results"), Duration.ofMillis(50), meterRegistry);
+    CountDownLatch release = new CountDownLatch(1);
+    Thread slow = new Thread(() -> cache.get("key", () -> {
+      release.await();
+      return "slow";
+    }));
+    slow.start();
+    try {
+      Thread.sleep(100);
+      Assertions.assertEquals("fast", cache.get("key", () -> "fast"));
+      Assertions.assertEquals(1, meterRegistry.get("cache.coalescing.timeouts").counter().count());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      release.countDown();
+    }
+  }
+
+  @Test
+  public void evictionDuringLoadIsNotOverwritten() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    CacheEvictions evictions = new CacheEvictions();
+    CoalescingCache cache = new CoalescingCache(
+        new ConcurrentMapCache("results"), Duration.ofSeconds(10), evictions, meterRegistry);
+    Assertions.assertEquals("stale", cache.get("key", () -> {
+      // Eliminazione di un flusso mentre è in calcolo un valore che dipende da tutti i flussi
+      evictions.evictedWorkflow("wf-1");
+      return "stale";
+    }));
+    Assertions.assertNull(cache.get("key"));
+    Assertions.assertEquals(1, meterRegistry.get("cache.coalescing.discarded").counter().count());
+    Assertions.assertEquals("fresh", cache.get("key", () -> "fresh"));
+    Assertions.assertEquals("fresh", cache.get("key").get());
+  }
+
+  @Test
+  public void evictionOfAnotherWorkflowDoesNotDiscardTheLoad() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    CacheEvictions evictions = new CacheEvictions();
+    CoalescingCache cache = new CoalescingCache(
+        new ConcurrentMapCache("results"), Duration.ofSeconds(10), evictions, meterRegistry);
+    WorkflowScopedKey completed = new WorkflowScopedKey(Set.of("wf-1"), "key");
+    WorkflowScopedKey running = new WorkflowScopedKey(Set.of("wf-2"), "key");
+    Assertions.assertEquals("completed", cache.get(completed, () -> {
+      // Caricamento dei risultati di un altro flusso mentre il valore è in calcolo
+      evictions.evictedWorkflow("wf-2");
+      return "completed";
+    }));
+    Assertions.assertEquals("completed", cache.get(completed).get());
+    Assertions.assertEquals("stale", cache.get(running, () -> {
+      evictions.evictedWorkflow("wf-2");
+      return "stale";
+    }));
+    Assertions.assertNull(cache.get(running));
+    Assertions.assertEquals(1, meterRegistry.get("cache.coalescing.discarded").counter().count());
+  }
+}
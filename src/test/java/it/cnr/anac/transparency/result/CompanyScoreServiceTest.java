@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result;
+
+import it.cnr.anac.transparency.result.events.ResultsChangedEvent;
+import it.cnr.anac.transparency.result.events.WorkflowChangedEvent;
+import it.cnr.anac.transparency.result.models.CompanyWorkflowScore;
+import it.cnr.anac.transparency.result.models.Workflow;
+import it.cnr.anac.transparency.result.repositories.CompanyWorkflowScoreDao;
+import it.cnr.anac.transparency.result.services.CompanyScoreService;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+/**
+ * Punteggi degli enti calcolati da {@link CompanyScoreService} durante il caricamento dei
+ * risultati e al completamento del flusso.
+ */
+@SpringBootTest
+@DirtiesContext
+class CompanyScoreServiceTest extends PostgresTestContainerBase {
+
+  // Flussi diversi da quelli degli altri test, che il calcolo all'avvio potrebbe consolidare
+  private static final String WORKFLOW_ID = "score-wf";
+  private static final LocalDateTime T1 = LocalDateTime.of(2026, 1, 10, 8, 0);
+
+  @Autowired
+  private CompanyWorkflowScoreDao companyWorkflowScoreDao;
+  @Autowired
+  private JdbcTemplate jdbc;
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  @BeforeEach
+  void clean() {
+    jdbc.update("DELETE FROM results WHERE workflow_id = ?", WORKFLOW_ID);
+    jdbc.update("DELETE FROM workflows WHERE workflow_id = ?", WORKFLOW_ID);
+    jdbc.update("DELETE FROM company_workflow_score WHERE workflow_id = ?", WORKFLOW_ID);
+  }
+
+  @Test
+  void completedWorkflowScoresArePassedRulesAndTheirCategory() throws InterruptedException {
+    insertWorkflow(Workflow.WorkflowStatus.COMPLETED);
+    insertResult(1, "ipa-1", "rule-a", 200);
+    insertResult(1, "ipa-1", "rule-b", 200);
+    insertResult(1, "ipa-1", "rule-c", 404);
+    insertResult(2, "ipa-2", "rule-a", 200);
+    insertResult(3, "ipa-3", "rule-a", 500);
+    insertResult(3, "ipa-3", "rule-b", null);
+
+    completed(Workflow.WorkflowStatus.RUNNING);
+    await(() -> scores(Optional.empty(), Optional.empty()).size() == 3);
+
+    List<CompanyWorkflowScore> scores = scores(Optional.empty(), Optional.empty());
+    Assertions.assertEquals(List.of(1L, 2L, 3L), scores.stream().map(CompanyWorkflowScore::getIdIpa).toList());
+    Assertions.assertEquals(List.of(2, 1, 0), scores.stream().map(CompanyWorkflowScore::getPassed).toList());
+    // I risultati senza stato non sono conteggiati
+    Assertions.assertEquals(List.of(1, 0, 1), scores.stream().map(CompanyWorkflowScore::getFailed).toList());
+    // Categorie 2-29 e 1-1, nessuna categoria senza regole superate
+    Assertions.assertEquals(1, scores.get(0).getCategory());
+    Assertions.assertEquals(0, scores.get(1).getCategory());
+    Assertions.assertNull(scores.get(2).getCategory());
+    Assertions.assertTrue(scores.stream().allMatch(CompanyWorkflowScore::getFinalized));
+    Assertions.assertEquals("ipa-1", scores.get(0).getCodiceIpa());
+    Assertions.assertEquals(2, jdbc.queryForObject("SELECT CAST(status_counts ->> '200' AS integer) "
+        + "FROM company_workflow_score WHERE workflow_id = ? AND id_ipa = 1", Integer.class, WORKFLOW_ID));
+    Assertions.assertEquals(1, jdbc.queryForObject("SELECT CAST(status_counts ->> '404' AS integer) "
+        + "FROM company_workflow_score WHERE workflow_id = ? AND id_ipa = 1", Integer.class, WORKFLOW_ID));
+
+    Assertions.assertEquals(List.of(1L), scores(Optional.of(1), Optional.empty()).stream()
+        .map(CompanyWorkflowScore::getIdIpa).toList());
+    Assertions.assertEquals(List.of(1L, 2L), scores(Optional.empty(), Optional.of(1)).stream()
+        .map(CompanyWorkflowScore::getIdIpa).toList());
+  }
+
+  @Test
+  void updatingACompletedWorkflowDoesNotRecomputeItsScores() throws InterruptedException {
+    insertWorkflow(Workflow.WorkflowStatus.COMPLETED);
+    insertResult(1, "ipa-1", "rule-a", 200);
+    completed(Workflow.WorkflowStatus.RUNNING);
+    await(() -> scores(Optional.empty(), Optional.empty()).size() == 1);
+
+    insertResult(1, "ipa-1", "rule-b", 200);
+    completed(Workflow.WorkflowStatus.COMPLETED);
+    // Il ricalcolo di un altro ente, accodato dopo l'aggiornamento, segnala che la coda è stata elaborata
+    insertResult(2, "ipa-2", "rule-a", 200);
+    eventPublisher.publishEvent(new ResultsChangedEvent(WORKFLOW_ID, Set.of("ipa-2"), false));
+    await(() -> scores(Optional.empty(), Optional.empty()).size() == 2);
+
+    Assertions.assertEquals(1, scores(Optional.empty(), Optional.empty()).get(0).getPassed());
+  }
+
+  @Test
+  void runningWorkflowScoresFollowTheLoadedResults() throws InterruptedException {
+    insertWorkflow(Workflow.WorkflowStatus.RUNNING);
+    insertResult(1, "ipa-1", "rule-a", 200);
+    insertResult(2, "ipa-2", "rule-a", 404);
+    eventPublisher.publishEvent(new ResultsChangedEvent(WORKFLOW_ID, Set.of("ipa-1"), false));
+    eventPublisher.publishEvent(new ResultsChangedEvent(WORKFLOW_ID, Set.of("ipa-2"), false));
+    await(() -> scores(Optional.empty(), Optional.empty()).size() == 2);
+
+    List<CompanyWorkflowScore> scores = scores(Optional.empty(), Optional.empty());
+    Assertions.assertEquals(List.of(1, 0), scores.stream().map(CompanyWorkflowScore::getPassed).toList());
+    Assertions.assertFalse(scores.stream().anyMatch(CompanyWorkflowScore::getFinalized));
+
+    // Un nuovo risultato aggiorna solo il punteggio del proprio ente
+    insertResult(2, "ipa-2", "rule-b", 200);
+    eventPublisher.publishEvent(new ResultsChangedEvent(WORKFLOW_ID, Set.of("ipa-2"), false));
+    await(() -> scores(Optional.empty(), Optional.empty()).get(1).getPassed() == 1);
+    Assertions.assertEquals(1, scores(Optional.empty(), Optional.empty()).get(1).getFailed());
+
+    // L'eliminazione dei risultati del flusso elimina i punteggi
+    eventPublisher.publishEvent(new ResultsChangedEvent(WORKFLOW_ID, Set.of(), true));
+    await(() -> scores(Optional.empty(), Optional.empty()).isEmpty());
+  }
+
+  /**
+   * Notifica l'aggiornamento del flusso a completato, come WorkflowController.
+   */
+  private void completed(Workflow.WorkflowStatus previousStatus) {
+    eventPublisher.publishEvent(
+        new WorkflowChangedEvent(WORKFLOW_ID, previousStatus, Workflow.WorkflowStatus.COMPLETED, false));
+  }
+
+  private List<CompanyWorkflowScore> scores(Optional<Integer> category, Optional<Integer> minPassed) {
+    return companyWorkflowScoreDao.find(WORKFLOW_ID, category, Optional.empty(), Optional.empty(),
+        minPassed, Optional.empty(), PageRequest.of(0, 100, Sort.by("idIpa"))).getContent();
+  }
+
+  /**
+   * Attende il ricalcolo in background dei punteggi.
+   */
+  private static void await(BooleanSupplier condition) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (!condition.getAsBoolean()) {
+      Assertions.assertTrue(System.currentTimeMillis() < deadline, "Punteggi non ricalcolati");
+      Thread.sleep(50);
+    }
+  }
+
+  private void insertWorkflow(Workflow.WorkflowStatus status) {
+    jdbc.update("INSERT INTO workflows (workflow_id, status, created_at, updated_at) VALUES (?, ?, ?, ?)",
+        WORKFLOW_ID, status.name(), T1, T1);
+  }
+
+  private void insertResult(int idIpa, String codiceIpa, String ruleName, Integer status) {
+    jdbc.update("INSERT INTO results (id_ipa, codice_ipa, denominazione_ente, codice_categoria, workflow_id, "
+        + "rule_name, status, created_at, updated_at) VALUES (?, ?, ?, 'L6', ?, ?, ?, ?, ?)",
+        idIpa, codiceIpa, "ente " + idIpa, WORKFLOW_ID, ruleName, status, T1, T1);
+  }
+}
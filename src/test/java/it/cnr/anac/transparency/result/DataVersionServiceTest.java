@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result;
+
+import it.cnr.anac.transparency.result.events.ResultsChangedEvent;
+import it.cnr.anac.transparency.result.models.Workflow;
+import it.cnr.anac.transparency.result.services.DataVersionService;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+/**
+ * Versione dei dati dei flussi calcolata da {@link DataVersionService}.
+ */
+@SpringBootTest
+@DirtiesContext
+class DataVersionServiceTest extends PostgresTestContainerBase {
+
+  private static final String WORKFLOW_ID = "version-wf";
+  private static final LocalDateTime T1 = LocalDateTime.of(2026, 1, 10, 8, 0);
+
+  @Autowired
+  private DataVersionService dataVersionService;
+  @Autowired
+  private JdbcTemplate jdbc;
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+
+  @BeforeEach
+  void clean() {
+    jdbc.update("DELETE FROM workflows WHERE workflow_id = ?", WORKFLOW_ID);
+    jdbc.update("INSERT INTO workflows (workflow_id, status, created_at, updated_at) VALUES (?, ?, ?, ?)",
+        WORKFLOW_ID, Workflow.WorkflowStatus.RUNNING.name(), T1, T1);
+  }
+
+  @Test
+  void everyResultsChangeChangesTheVersion() {
+    DataVersionService.DataVersion initial = dataVersionService.version(List.of(WORKFLOW_ID));
+    Assertions.assertEquals(0, initial.resultsVersion());
+
+    // Modifiche nello stesso secondo, come durante un caricamento massivo
+    eventPublisher.publishEvent(new ResultsChangedEvent(WORKFLOW_ID, Set.of("ipa-1"), false));
+    DataVersionService.DataVersion first = dataVersionService.version(List.of(WORKFLOW_ID));
+    eventPublisher.publishEvent(new ResultsChangedEvent(WORKFLOW_ID, Set.of("ipa-2"), false));
+    DataVersionService.DataVersion second = dataVersionService.version(List.of(WORKFLOW_ID));
+
+    Assertions.assertEquals(2, second.resultsVersion());
+    Assertions.assertNotEquals(initial.stamp(), first.stamp());
+    Assertions.assertNotEquals(first.stamp(), second.stamp());
+    Assertions.assertTrue(second.lastModifiedMillis() >= first.lastModifiedMillis());
+    Assertions.assertEquals(0, second.lastModifiedMillis() % 1000);
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result;
+
+import it.cnr.anac.transparency.result.config.CachedResponse;
+import it.cnr.anac.transparency.result.config.DiskResponseStore;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DiskResponseStoreTest {
+
+  private static final int SEGMENT_SIZE = 4096;
+
+  @TempDir
+  Path directory;
+
+  @Test
+  public void storedResponsesSurviveReopen() throws IOException {
+    try (DiskResponseStore store = new DiskResponseStore(directory, SEGMENT_SIZE, 4)) {
+      Assertions.assertTrue(store.put("/v1/results?workflowId=1", "1:1:1000", response("[1,2,3]")));
+    }
+    try (DiskResponseStore store = new DiskResponseStore(directory, SEGMENT_SIZE, 4)) {
+      Optional<CachedResponse> stored = store.get("/v1/results?workflowId=1", "1:1:1000");
+      Assertions.assertTrue(stored.isPresent());
+      Assertions.assertEquals("[1,2,3]", new String(stored.get().body(), StandardCharsets.UTF_8));
+      Assertions.assertEquals("application/json", stored.get().contentType());
+    }
+  }
+
+  @Test
+  public void differentVersionIsNotReturned() throws IOException {
+    try (DiskResponseStore store = new DiskResponseStore(directory, SEGMENT_SIZE, 4)) {
+      store.put("key", "1:1:1000", response("old"));
+      Assertions.assertTrue(store.get("key", "1:1:2000").isEmpty());
+      store.put("key", "1:1:2000", response("new"));
+      Assertions.assertEquals("new", new String(store.get("key", "1:1:2000").get().body(), StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void corruptedRecordsAreIgnored() throws IOException {
+    try (DiskResponseStore store = new DiskResponseStore(directory, SEGMENT_SIZE, 4)) {
+      store.put("key", "v", response("content"));
+    }
+    Path segment = directory.resolve("segment-0.dat");
+    byte[] bytes = Files.readAllBytes(segment);
+    // Altera un byte del contenuto dopo l'intestazione del record
+    bytes[30] ^= 0x7f;
+    Files.write(segment, bytes);
+    try (DiskResponseStore store = new DiskResponseStore(directory, SEGMENT_SIZE, 4)) {
+      Assertions.assertTrue(store.get("key", "v").isEmpty());
+      Assertions.assertEquals(0, store.size());
+    }
+  }
+
+  @Test
+  public void oldestSegmentIsDroppedWhenFull() throws IOException {
+    String content = "x".repeat(3000);
+    try (DiskResponseStore store = new DiskResponseStore(directory, SEGMENT_SIZE, 2)) {
+      store.put("first", "v", response(content));
+      store.put("second", "v", response(content));
+      store.put("third", "v", response(content));
+      Assertions.assertTrue(store.get("first", "v").isEmpty());
+      Assertions.assertTrue(store.get("second", "v").isPresent());
+      Assertions.assertTrue(store.get("third", "v").isPresent());
+      Assertions.assertFalse(store.put("huge", "v", response("x".repeat(SEGMENT_SIZE))));
+    }
+  }
+
+  private static CachedResponse response(String body) {
+    return CachedResponse.of("application/json", body.getBytes(StandardCharsets.UTF_8), 1024);
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.cnr.anac.transparency.result.config.RefreshAheadCache;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+public class RefreshAheadCacheTest {
+
+  @Test
+  public void staleValueIsServedWhileRefreshing() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    List<Runnable> tasks = new ArrayList<>();
+    RefreshAheadCache cache = new RefreshAheadCache(
+        new CaffeineCache("resultsGroupedBy", Caffeine.newBuilder().build()),
+        Duration.ZERO, tasks::add, meterRegistry);
+    AtomicInteger executions = new AtomicInteger();
+
+    Assertions.assertEquals(1, cache.<Integer>get("key", executions::incrementAndGet));
+    // Il valore è scaduto: è restituito quello presente e il ricalcolo è accodato una sola volta
+    Assertions.assertEquals(1, cache.<Integer>get("key", executions::incrementAndGet));
+    Assertions.assertEquals(1, cache.<Integer>get("key", executions::incrementAndGet));
+    Assertions.assertEquals(1, tasks.size());
+
+    tasks.remove(0).run();
+    Assertions.assertEquals(2, cache.get("key", Integer.class));
+    Assertions.assertEquals(1.0,
+        meterRegistry.get("cache.refreshes").tag("outcome", "success").counter().count());
+  }
+
+  @Test
+  public void refreshOfEvictedValueIsDiscarded() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    List<Runnable> tasks = new ArrayList<>();
+    RefreshAheadCache cache = new RefreshAheadCache(
+        new CaffeineCache("resultsGroupedBy", Caffeine.newBuilder().build()),
+        Duration.ZERO, tasks::add, meterRegistry);
+
+    cache.get("key", () -> "old");
+    cache.get("key", () -> "refreshed");
+    cache.evict("key");
+    tasks.remove(0).run();
+
+    Assertions.assertNull(cache.get("key"));
+    Assertions.assertEquals(1.0,
+        meterRegistry.get("cache.refreshes").tag("outcome", "discarded").counter().count());
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.cnr.anac.transparency.result.config.CoalescingCache;
+import it.cnr.anac.transparency.result.config.ReadYourWritesTracker;
+import it.cnr.anac.transparency.result.config.ReplicaRoutingDataSource;
+import it.cnr.anac.transparency.result.config.SharedReads;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import javax.sql.DataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+/**
+ * Verifica l'instradamento delle connessioni tra datasource principale e replica,
+ * utilizzando due database H2 in memoria.
+ */
+public class ReplicaRoutingDataSourceTest {
+
+  private DataSource primary;
+  private DataSource replica;
+
+  @BeforeEach
+  public void setUp() throws SQLException {
+    primary = h2("primary");
+    replica = h2("replica");
+  }
+
+  @AfterEach
+  public void clearAuthentication() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  public void readOnlyConnectionsUseReplica() throws SQLException {
+    ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replica,
+        new ReadYourWritesTracker(Duration.ZERO), Duration.ofMinutes(1));
+    Assertions.assertEquals("replica", node(routing, true));
+    Assertions.assertEquals("primary", node(routing, false));
+  }
+
+  @Test
+  public void readYourWritesUsesPrimary() throws SQLException {
+    ReadYourWritesTracker tracker = new ReadYourWritesTracker(Duration.ofMinutes(1));
+    ReplicaRoutingDataSource routing =
+        new ReplicaRoutingDataSource(primary, replica, tracker, Duration.ofMinutes(1));
+    Assertions.assertEquals("replica", node(routing, true));
+    tracker.recordWrite();
+    Assertions.assertEquals("primary", node(routing, true));
+  }
+
+  @Test
+  public void sharedReadsAfterAnotherUserWriteUsePrimary() throws SQLException {
+    ReadYourWritesTracker tracker = new ReadYourWritesTracker(Duration.ofMinutes(1));
+    ReplicaRoutingDataSource routing =
+        new ReplicaRoutingDataSource(primary, replica, tracker, Duration.ofMinutes(1));
+    SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("crawler", null, "ADMIN"));
+    tracker.recordWrite();
+    SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("reader", null, "USER"));
+    Assertions.assertEquals("replica", node(routing, true));
+    try (SharedReads.Scope scope = SharedReads.open()) {
+      Assertions.assertEquals("primary", node(routing, true));
+    }
+    Assertions.assertFalse(SharedReads.active());
+  }
+
+  @Test
+  public void reloadAfterEvictionDoesNotCacheLaggingReplica() throws SQLException {
+    ReadYourWritesTracker tracker = new ReadYourWritesTracker(Duration.ofMinutes(1));
+    ReplicaRoutingDataSource routing =
+        new ReplicaRoutingDataSource(primary, replica, tracker, Duration.ofMinutes(1));
+    CoalescingCache cache = new CoalescingCache(
+        new ConcurrentMapCache("results"), Duration.ofSeconds(10), new SimpleMeterRegistry());
+    // Nessuna scrittura recente, il valore è letto dalla replica
+    Assertions.assertEquals("replica", cache.get("key", () -> node(routing, true)));
+
+    // Scrittura notificata da un'altra istanza e non ancora replicata: la replica contiene
+    // ancora i dati precedenti, il valore ricalcolato dopo l'eliminazione è letto dal principale
+    tracker.recordSharedWrite();
+    cache.evict("key");
+    Assertions.assertEquals("primary", cache.get("key", () -> node(routing, true)));
+    Assertions.assertEquals("primary", cache.get("key").get());
+  }
+
+  @Test
+  public void unavailableReplicaFallsBackToPrimary() throws SQLException {
+    JdbcDataSource missing = new JdbcDataSource();
+    missing.setURL("jdbc:h2:mem:missing;IFEXISTS=TRUE");
+    ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, missing,
+        new ReadYourWritesTracker(Duration.ZERO), Duration.ofMinutes(1));
+    Assertions.assertEquals("primary", node(routing, true));
+    Assertions.assertEquals("primary", node(routing, true));
+  }
+
+  private static DataSource h2(String name) throws SQLException {
+    JdbcDataSource dataSource = new JdbcDataSource();
+    dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(20))");
+      statement.execute("DELETE FROM node");
+      statement.execute("INSERT INTO node VALUES ('" + name + "')");
+    }
+    return dataSource;
+  }
+
+  private static String node(DataSource dataSource, boolean readOnly) throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setReadOnly(readOnly);
+      try (Statement statement = connection.createStatement();
+          ResultSet resultSet = statement.executeQuery("SELECT name FROM node")) {
+        resultSet.next();
+        return resultSet.getString(1);
+      }
+    }
+  }
+}
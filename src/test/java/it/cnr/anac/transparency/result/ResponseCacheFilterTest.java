@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import it.cnr.anac.transparency.result.config.RequestWorkflowResolver;
+import it.cnr.anac.transparency.result.config.ResponseCacheFilter;
+import it.cnr.anac.transparency.result.repositories.ResultDao;
+import it.cnr.anac.transparency.result.services.CachingService;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Chiavi della cache delle risposte per le API per codice IPA, che dipendono dall'ultimo
+ * flusso completato del codice IPA.
+ */
+class ResponseCacheFilterTest {
+
+  private static final String PATH = "/v1/results/codiceipa";
+
+  private final ResultDao resultDao = mock(ResultDao.class);
+  private final AtomicInteger calls = new AtomicInteger();
+  private ResponseCacheFilter filter;
+
+  @BeforeEach
+  void setUp() {
+    filter = new ResponseCacheFilter(new ConcurrentMapCache(ResponseCacheFilter.RESPONSES_CACHE_NAME),
+        mock(CachingService.class), Integer.MAX_VALUE, null,
+        new RequestWorkflowResolver(resultDao, Set.of(PATH)), null);
+  }
+
+  @Test
+  void completingAWorkflowChangesTheResponseKey() throws Exception {
+    when(resultDao.lastWorkflowIdForCodiceIpa("ipa-1")).thenReturn(Optional.of("wf-1"));
+    MockHttpServletResponse first = get();
+    Assertions.assertEquals("MISS", first.getHeader(ResponseCacheFilter.CACHE_HEADER));
+    MockHttpServletResponse cached = get();
+    Assertions.assertEquals("HIT", cached.getHeader(ResponseCacheFilter.CACHE_HEADER));
+    Assertions.assertEquals(first.getContentAsString(), cached.getContentAsString());
+
+    // Nuovo ultimo flusso completato del codice IPA, senza alcuna eliminazione dalla cache
+    when(resultDao.lastWorkflowIdForCodiceIpa("ipa-1")).thenReturn(Optional.of("wf-2"));
+    MockHttpServletResponse latest = get();
+    Assertions.assertEquals("MISS", latest.getHeader(ResponseCacheFilter.CACHE_HEADER));
+    Assertions.assertNotEquals(first.getContentAsString(), latest.getContentAsString());
+  }
+
+  @Test
+  void codiceIpaWithoutCompletedWorkflowsIsNotCached() throws Exception {
+    when(resultDao.lastWorkflowIdForCodiceIpa("ipa-1")).thenReturn(Optional.empty());
+    Assertions.assertNull(get().getHeader(ResponseCacheFilter.CACHE_HEADER));
+    Assertions.assertNull(get().getHeader(ResponseCacheFilter.CACHE_HEADER));
+    Assertions.assertEquals(2, calls.get());
+  }
+
+  private MockHttpServletResponse get() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", PATH);
+    request.setParameter("codiceIpa", "ipa-1");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(request, response, new MockFilterChain(new HttpServlet() {
+      @Override
+      protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        resp.setContentType("application/json");
+        resp.getWriter().write("{\"call\":" + calls.incrementAndGet() + "}");
+      }
+    }));
+    return response;
+  }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result;
+
+import it.cnr.anac.transparency.result.config.RuleCategoryProperties;
+import it.cnr.anac.transparency.result.events.WorkflowChangedEvent;
+import it.cnr.anac.transparency.result.models.Result;
+import it.cnr.anac.transparency.result.models.Workflow;
+import it.cnr.anac.transparency.result.repositories.ResultCursor;
+import it.cnr.anac.transparency.result.repositories.ResultDao;
+import it.cnr.anac.transparency.result.repositories.ResultProjections;
+import it.cnr.anac.transparency.result.services.CompanyHistoryService;
+import it.cnr.anac.transparency.result.v1.dto.CategoryValueDto;
+import it.cnr.anac.transparency.result.v1.dto.CompanyHistoryDto;
+import it.cnr.anac.transparency.result.v1.dto.CursorPageDto;
+import it.cnr.anac.transparency.result.v1.dto.ResultShowDto;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Ricerche di {@link ResultDao} su Postgres, confrontate con le stesse ricerche scritte in SQL,
+ * e storico per codice IPA di {@link CompanyHistoryService} che le utilizza.
+ */
+@SpringBootTest
+@DirtiesContext
+class ResultDaoTest extends PostgresTestContainerBase {
+
+  private static final LocalDateTime T1 = LocalDateTime.of(2026, 1, 10, 8, 0);
+  private static final LocalDateTime T2 = LocalDateTime.of(2026, 1, 11, 8, 0);
+  private static final LocalDateTime T3 = LocalDateTime.of(2026, 1, 12, 8, 0);
+  private static final LocalDateTime T4 = LocalDateTime.of(2026, 1, 13, 8, 0);
+
+  @Autowired
+  private ResultDao resultDao;
+  @Autowired
+  private JdbcTemplate jdbc;
+  @Autowired
+  private CacheManager cacheManager;
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+  @Autowired
+  private ApplicationEventPublisher eventPublisher;
+  @Autowired
+  private RuleCategoryProperties ruleCategoryProperties;
+  @Autowired
+  private CompanyHistoryService companyHistoryService;
+
+  @BeforeEach
+  void clean() {
+    jdbc.update("DELETE FROM results");
+    jdbc.update("DELETE FROM workflows");
+    jdbc.update("DELETE FROM latest_workflows");
+    jdbc.update("DELETE FROM company_workflow_score");
+    cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+  }
+
+  @Test
+  void keysetPagesVisitEveryResultOnceWithTiesAndNulls() {
+    // Tre risultati con la stessa data, due con un'altra e due senza data
+    LocalDateTime[] createdAt = {T1, T2, T1, null, T2, T1, null};
+    for (int i = 0; i < createdAt.length; i++) {
+      insertResult(i + 1, "ipa-" + (i + 1), "wf-keyset", "rule-a", 200, createdAt[i]);
+    }
+    Assertions.assertEquals(
+        jdbc.queryForList("SELECT id FROM results ORDER BY created_at ASC NULLS LAST, id ASC", Long.class),
+        keysetIds("wf-keyset", Sort.Direction.ASC, 2));
+    Assertions.assertEquals(
+        jdbc.queryForList("SELECT id FROM results ORDER BY created_at DESC NULLS FIRST, id DESC", Long.class),
+        keysetIds("wf-keyset", Sort.Direction.DESC, 2));
+  }
+
+  @Test
+  void streamReadsTheWholeWorkflowInsideATransaction() {
+    for (int i = 1; i <= 250; i++) {
+      insertResult(i, "ipa-" + i, i % 2 == 0 ? "wf-stream" : "wf-other", "rule-a", 200, T1);
+    }
+    List<Long> ids = new TransactionTemplate(transactionManager).execute(status -> {
+      try (Stream<ResultShowDto> stream = streamWorkflow("wf-stream")) {
+        return stream.map(ResultShowDto::getId).toList();
+      }
+    });
+    Assertions.assertEquals(
+        jdbc.queryForList("SELECT id FROM results WHERE workflow_id = 'wf-stream' ORDER BY id", Long.class), ids);
+    // Il cursore del database esiste solo all'interno di una transazione
+    Assertions.assertThrows(IllegalTransactionStateException.class, () -> streamWorkflow("wf-stream"));
+  }
+
+  @Test
+  void slicesReportTheNextPageWithoutCounting() {
+    for (int i = 1; i <= 6; i++) {
+      insertResult(i, "ipa-" + i, "wf-slice", "rule-a", 200, T1);
+    }
+    List<Long> ids = new ArrayList<>();
+    Slice<ResultShowDto> slice = findSlice("wf-slice", PageRequest.of(0, 4, Sort.by("id")));
+    Assertions.assertTrue(slice.hasNext());
+    Assertions.assertEquals(4, slice.getNumberOfElements());
+    slice.forEach(dto -> ids.add(dto.getId()));
+    // L'ultima pagina è piena solo in parte
+    slice = findSlice("wf-slice", slice.nextPageable());
+    Assertions.assertFalse(slice.hasNext());
+    slice.forEach(dto -> ids.add(dto.getId()));
+    Assertions.assertEquals(
+        jdbc.queryForList("SELECT id FROM results WHERE workflow_id = 'wf-slice' ORDER BY id", Long.class), ids);
+    // Una pagina che termina esattamente con l'ultimo risultato non ha successiva
+    Assertions.assertFalse(findSlice("wf-slice", PageRequest.of(1, 3, Sort.by("id"))).hasNext());
+  }
+
+  @Test
+  void batchLookupReturnsTheLatestCompletedWorkflowOfEachCodiceIpa() {
+    insertWorkflow("wf-old", Workflow.WorkflowStatus.COMPLETED, T1);
+    insertResult(1, "ipa-1", "wf-old", "rule-a", 404, T1);
+    insertResult(2, "ipa-2", "wf-old", "rule-a", 200, T1);
+    completed("wf-old");
+    insertWorkflow("wf-new", Workflow.WorkflowStatus.COMPLETED, T2);
+    insertResult(1, "ipa-1", "wf-new", "rule-a", 200, T2);
+    insertResult(1, "ipa-1", "wf-new", "rule-b", 500, T2);
+    completed("wf-new");
+    // I flussi non completati non sono considerati
+    insertWorkflow("wf-running", Workflow.WorkflowStatus.RUNNING, T2);
+    insertResult(1, "ipa-1", "wf-running", "rule-a", 200, T2);
+    insertResult(3, "ipa-3", "wf-running", "rule-a", 200, T2);
+
+    Map<String, String> workflowIds = resultDao.lastWorkflowIdsForCodiciIpa(List.of("ipa-1", "ipa-2", "ipa-3"));
+    Assertions.assertEquals(Map.of("ipa-1", "wf-new", "ipa-2", "wf-old"), workflowIds);
+
+    Map<String, List<ResultShowDto>> results = resultDao.findByCodiceIpaAndWorkflowId(workflowIds);
+    Assertions.assertEquals(List.of("rule-a", "rule-b"),
+        results.get("ipa-1").stream().map(ResultShowDto::getRuleName).toList());
+    Assertions.assertTrue(results.get("ipa-1").stream().allMatch(dto -> "wf-new".equals(dto.getWorkflowId())));
+    Assertions.assertEquals(1, results.get("ipa-2").size());
+    Assertions.assertFalse(results.containsKey("ipa-3"));
+  }
+
+  @Test
+  void categoryTotalsMatchOneCountPerCategory() {
+    // L'ente c ha c risultati con stato 200 e uno con stato 404
+    jdbc.update("INSERT INTO results (id_ipa, codice_ipa, denominazione_ente, codice_categoria, workflow_id, "
+        + "rule_name, status) SELECT c, 'ipa-' || c, 'ente ' || c, 'L6', 'wf-categories', 'rule-' || r, "
+        + "CASE WHEN r < c THEN 200 ELSE 404 END "
+        + "FROM generate_series(0, 60) c, generate_series(0, 60) r WHERE r <= c");
+    for (Set<Integer> status : List.of(Set.of(200), Set.of(200, 404), Set.of(500))) {
+      List<CategoryValueDto> categories =
+          resultDao.countResultsAndGroupByCategoriesWidthWorkflowIdAndStatus("wf-categories", status);
+      Assertions.assertEquals(ruleCategoryProperties.getRules().size(), categories.size());
+      for (CategoryValueDto category : categories) {
+        // Conteggio per singola categoria, come prima del calcolo in un'unica query
+        Integer expected = jdbc.queryForObject("SELECT count(*) FROM (SELECT 1 FROM results "
+            + "WHERE workflow_id = 'wf-categories' AND status = ANY(?) "
+            + "GROUP BY id_ipa, codice_ipa, denominazione_ente, codice_fiscale_ente, tipologia, "
+            + "codice_categoria, codice_natura, acronimo, sito_istituzionale, sorgente "
+            + "HAVING count(*) BETWEEN ? AND ?) companies", Integer.class,
+            status.toArray(Integer[]::new), category.getCategory().getMin(), category.getCategory().getMax());
+        Assertions.assertEquals(expected, category.getValue(), "categoria " + category.getCategory().getMin()
+            + "-" + category.getCategory().getMax() + " con stati " + status);
+      }
+    }
+  }
+
+  @Test
+  void companyGroupsArePagedWithTheirTotal() {
+    // L'ente c ha c risultati con stato 200
+    jdbc.update("INSERT INTO results (id_ipa, codice_ipa, denominazione_ente, codice_categoria, workflow_id, "
+        + "rule_name, status) SELECT c, 'ipa-' || c, 'Ente ' || c, 'L6', 'wf-groups', 'rule-' || r, 200 "
+        + "FROM generate_series(1, 7) c, generate_series(1, 7) r WHERE r <= c");
+    Page<Result> first = companyGroups(null, PageRequest.of(0, 3));
+    Assertions.assertEquals(List.of(2L, 3L, 4L), idIpa(first.getContent()));
+    Assertions.assertEquals(4, first.getTotalElements());
+    Page<Result> last = companyGroups(null, PageRequest.of(1, 3));
+    Assertions.assertEquals(List.of(5L), idIpa(last.getContent()));
+    Assertions.assertEquals(4, last.getTotalElements());
+    // Oltre l'ultima pagina il totale è calcolato con la query di conteggio
+    Page<Result> beyond = companyGroups(null, PageRequest.of(5, 3));
+    Assertions.assertTrue(beyond.getContent().isEmpty());
+    Assertions.assertEquals(4, beyond.getTotalElements());
+    Assertions.assertEquals("ipa-3", companyGroups("ENTE 3", PageRequest.of(0, 3)).getContent().get(0)
+        .getCompany().getCodiceIpa());
+
+    CursorPageDto<Result> keysetFirst = companyGroupsAfter(Optional.empty());
+    Assertions.assertEquals(List.of(2L, 3L, 4L), idIpa(keysetFirst.getContent()));
+    CursorPageDto<Result> keysetLast = companyGroupsAfter(Optional.of(ResultCursor.decode(keysetFirst.getNext())));
+    Assertions.assertEquals(List.of(5L), idIpa(keysetLast.getContent()));
+    Assertions.assertNull(keysetLast.getNext());
+  }
+
+  @Test
+  void historyIsAWorkflowByRuleMatrixOfTheLastCompletedWorkflows() {
+    insertWorkflow("wf-1", Workflow.WorkflowStatus.COMPLETED, T1);
+    insertResult(1, "ipa-1", "wf-1", "rule-a", 200, T1);
+    insertResult(1, "ipa-1", "wf-1", "rule-b", 404, T1);
+    insertWorkflow("wf-2", Workflow.WorkflowStatus.COMPLETED, T2);
+    insertResult(1, "ipa-1", "wf-2", "rule-a", 404, T2);
+    insertResult(2, "ipa-2", "wf-2", "rule-a", 200, T2);
+    insertWorkflow("wf-3", Workflow.WorkflowStatus.COMPLETED, T3);
+    insertResult(1, "ipa-1", "wf-3", "rule-a", 200, T3);
+    insertResult(1, "ipa-1", "wf-3", "rule-b", 200, T3);
+    insertWorkflow("wf-running", Workflow.WorkflowStatus.RUNNING, T4);
+    insertResult(1, "ipa-1", "wf-running", "rule-a", 500, T4);
+
+    List<CompanyHistoryDto> history = companyHistoryService.history(List.of("ipa-2", "ipa-1", "ipa-x"), 2);
+    Assertions.assertEquals(List.of("ipa-2", "ipa-1", "ipa-x"),
+        history.stream().map(CompanyHistoryDto::getCodiceIpa).toList());
+    Assertions.assertEquals(List.of("wf-2"), workflowIds(history.get(0)));
+    Assertions.assertEquals(Map.of("rule-a", List.of(200)), history.get(0).getStatuses());
+    // Solo gli ultimi due flussi completati, dal più recente, null se la regola manca nel flusso
+    Assertions.assertEquals(List.of("wf-3", "wf-2"), workflowIds(history.get(1)));
+    Assertions.assertEquals(T3, history.get(1).getWorkflows().get(0).getCompletedAt());
+    Assertions.assertEquals(Map.of("rule-a", List.of(200, 404), "rule-b", Arrays.asList(200, null)),
+        history.get(1).getStatuses());
+    Assertions.assertTrue(history.get(2).getWorkflows().isEmpty());
+    Assertions.assertTrue(history.get(2).getStatuses().isEmpty());
+
+    // Un nuovo flusso completato cambia la chiave della cache
+    insertWorkflow("wf-4", Workflow.WorkflowStatus.COMPLETED, T4);
+    insertResult(1, "ipa-1", "wf-4", "rule-a", 500, T4);
+    CompanyHistoryDto updated = companyHistoryService.history(List.of("ipa-1"), 2).get(0);
+    Assertions.assertEquals(List.of("wf-4", "wf-3"), workflowIds(updated));
+    Assertions.assertEquals(Arrays.asList(null, 200), updated.getStatuses().get("rule-b"));
+  }
+
+  private List<Long> keysetIds(String workflowId, Sort.Direction direction, int size) {
+    List<Long> ids = new ArrayList<>();
+    Optional<ResultCursor> after = Optional.empty();
+    do {
+      CursorPageDto<ResultShowDto> page = resultDao.findAfter(Optional.empty(), Optional.empty(),
+          Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(),
+          Optional.empty(), Optional.of(List.of(workflowId)), Optional.empty(),
+          after, size, Sort.by(direction, "createdAt"));
+      Assertions.assertTrue(page.getContent().size() <= size);
+      page.getContent().forEach(dto -> ids.add(dto.getId()));
+      // Il cursore restituito deve essere riutilizzabile nella richiesta successiva
+      after = Optional.ofNullable(page.getNext()).map(ResultCursor::decode);
+    } while (after.isPresent());
+    return ids;
+  }
+
+  private Page<Result> companyGroups(String denominazioneEnte, Pageable pageable) {
+    return resultDao.findCompaniesByWorkflowAndStatusWithOccurencesBetween("wf-groups", List.of(200), 2, 5,
+        denominazioneEnte, null, null, null, pageable);
+  }
+
+  private CursorPageDto<Result> companyGroupsAfter(Optional<ResultCursor> after) {
+    return resultDao.findCompaniesByWorkflowAndStatusWithOccurencesBetweenAfter("wf-groups", List.of(200), 2, 5,
+        null, null, null, null, after, 3);
+  }
+
+  private static List<String> workflowIds(CompanyHistoryDto history) {
+    return history.getWorkflows().stream().map(CompanyHistoryDto.WorkflowRun::getWorkflowId).toList();
+  }
+
+  private static List<Long> idIpa(List<Result> results) {
+    return results.stream().map(result -> result.getCompany().getIdIpa()).toList();
+  }
+
+  private Slice<ResultShowDto> findSlice(String workflowId, Pageable pageable) {
+    return resultDao.findSlice(Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(),
+        Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(),
+        Optional.of(List.of(workflowId)), Optional.empty(), pageable);
+  }
+
+  private Stream<ResultShowDto> streamWorkflow(String workflowId) {
+    return resultDao.stream(Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(),
+        Optional.empty(), Optional.empty(), Optional.empty(), Optional.empty(),
+        Optional.of(List.of(workflowId)), Optional.empty(), Sort.by("id"), ResultProjections.show());
+  }
+
+  private void insertWorkflow(String workflowId, Workflow.WorkflowStatus status, LocalDateTime updatedAt) {
+    jdbc.update("INSERT INTO workflows (workflow_id, status, created_at, updated_at) VALUES (?, ?, ?, ?)",
+        workflowId, status.name(), updatedAt, updatedAt);
+  }
+
+  /**
+   * Notifica il completamento del flusso, come WorkflowController.
+   */
+  private void completed(String workflowId) {
+    eventPublisher.publishEvent(new WorkflowChangedEvent(workflowId, Workflow.WorkflowStatus.RUNNING,
+        Workflow.WorkflowStatus.COMPLETED, false));
+  }
+
+  private void insertResult(int idIpa, String codiceIpa, String workflowId, String ruleName, Integer status,
+      LocalDateTime createdAt) {
+    jdbc.update("INSERT INTO results (id_ipa, codice_ipa, denominazione_ente, codice_categoria, workflow_id, "
+        + "rule_name, status, created_at, updated_at) VALUES (?, ?, ?, 'L6', ?, ?, ?, ?, ?)",
+        idIpa, codiceIpa, "ente " + idIpa, workflowId, ruleName, status, createdAt, createdAt);
+  }
+}
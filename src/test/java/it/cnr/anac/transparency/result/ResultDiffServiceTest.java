@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result;
+
+import it.cnr.anac.transparency.result.repositories.ResultStatusRow;
+import it.cnr.anac.transparency.result.services.ResultDiffService;
+import it.cnr.anac.transparency.result.v1.dto.ResultDiffDto;
+import it.cnr.anac.transparency.result.v1.dto.ResultDiffDto.Change;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ResultDiffServiceTest {
+
+  private static final Comparator<ResultStatusRow> ORDER =
+      Comparator.comparing(ResultStatusRow::ruleName).thenComparing(ResultStatusRow::idIpa);
+
+  @Test
+  public void emitsOnlyAddedRemovedAndChangedRows() {
+    List<ResultStatusRow> from = List.of(
+        row("rule-a", 1L, 200), row("rule-a", 2L, 200), row("rule-a", 4L, 404),
+        row("rule-b", 1L, 200), row("rule-c", 7L, 200));
+    List<ResultStatusRow> to = List.of(
+        row("rule-a", 1L, 200), row("rule-a", 3L, 200), row("rule-a", 4L, 200),
+        row("rule-b", 1L, 200), row("rule-b", 9L, 500));
+
+    List<ResultDiffDto> changes = new ArrayList<>();
+    ResultDiffService.diff(from.iterator(), to.iterator(), ORDER, changes::add);
+
+    Assertions.assertEquals(List.of(
+        new ResultDiffDto(Change.REMOVED, "rule-a", 2L, "ipa-2", "ente 2", 200, null),
+        new ResultDiffDto(Change.ADDED, "rule-a", 3L, "ipa-3", "ente 3", null, 200),
+        new ResultDiffDto(Change.CHANGED, "rule-a", 4L, "ipa-4", "ente 4", 404, 200),
+        new ResultDiffDto(Change.ADDED, "rule-b", 9L, "ipa-9", "ente 9", null, 500),
+        new ResultDiffDto(Change.REMOVED, "rule-c", 7L, "ipa-7", "ente 7", 200, null)),
+        changes);
+  }
+
+  @Test
+  public void emptyWorkflowProducesOnlyAddedRows() {
+    List<ResultDiffDto> changes = new ArrayList<>();
+    ResultDiffService.diff(List.<ResultStatusRow>of().iterator(),
+        List.of(row("rule-a", 1L, 200), row("rule-a", 2L, 404)).iterator(), ORDER, changes::add);
+    Assertions.assertEquals(2, changes.size());
+    Assertions.assertTrue(changes.stream().allMatch(change -> change.getChange() == Change.ADDED));
+  }
+
+  private static ResultStatusRow row(String ruleName, Long idIpa, Integer status) {
+    return new ResultStatusRow(ruleName, idIpa, "ipa-" + idIpa, "ente " + idIpa, status);
+  }
+}
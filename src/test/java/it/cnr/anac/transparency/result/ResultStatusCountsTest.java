@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2026 Consiglio Nazionale delle Ricerche
+ *
+ *     This program is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Affero General Public License as
+ *     published by the Free Software Foundation, either version 3 of the
+ *     License, or (at your option) any later version.
+ *
+ *     This program is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Affero General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Affero General Public License
+ *     along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package it.cnr.anac.transparency.result;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/**
+ * Riconciliazione della tabella result_status_counts, mantenuta dai trigger, con il
+ * conteggio calcolato sulla tabella results.
+ */
+class ResultStatusCountsTest extends PostgresTestContainerBase {
+
+  private static final String LIVE =
+      "SELECT workflow_id, coalesce(rule_name, '') AS rule_name, status, count(*) AS n FROM results "
+      + "WHERE workflow_id IS NOT NULL AND status IS NOT NULL GROUP BY 1, 2, 3 ORDER BY 1, 2, 3";
+
+  private static final String COUNTS =
+      "SELECT workflow_id, rule_name, status, n FROM result_status_totals WHERE n > 0 ORDER BY 1, 2, 3";
+
+  private DriverManagerDataSource dataSource;
+  private JdbcTemplate jdbc;
+
+  @BeforeEach
+  void migrate() {
+    dataSource = new DriverManagerDataSource(
+        POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+    Flyway.configure().dataSource(dataSource).load().migrate();
+    jdbc = new JdbcTemplate(dataSource);
+    jdbc.update("DELETE FROM results");
+    jdbc.queryForObject("SELECT result_status_counts_merge()", Long.class);
+  }
+
+  @Test
+  void countsFollowWritesOnResults() {
+    insert(1, "wf-1", "rule-a", 200);
+    assertReconciled();
+
+    // Inserimento multiplo, come in createBulk
+    jdbc.batchUpdate(
+        "INSERT INTO results (id_ipa, denominazione_ente, workflow_id, rule_name, status) VALUES (?, 'ente', ?, ?, ?)",
+        List.of(new Object[] {2, "wf-1", "rule-a", 404}, new Object[] {3, "wf-1", "rule-b", 200},
+            new Object[] {4, "wf-2", "rule-a", 200}, new Object[] {5, "wf-2", null, 500},
+            new Object[] {6, null, "rule-a", 200}));
+    jdbc.update("INSERT INTO results (id_ipa, denominazione_ente, workflow_id, rule_name, status) "
+        + "SELECT g, 'ente', 'wf-3', 'rule-a', 200 + (g % 3) FROM generate_series(10, 200) g");
+    assertReconciled();
+
+    // Le variazioni sommate in result_status_counts non cambiano i totali
+    Assertions.assertTrue(jdbc.queryForObject("SELECT result_status_counts_merge()", Long.class) > 0);
+    Assertions.assertEquals(0, jdbc.queryForObject("SELECT count(*) FROM result_status_count_deltas", Long.class));
+    assertReconciled();
+
+    // Modifica dello stato, della regola e del flusso
+    jdbc.update("UPDATE results SET status = 200 WHERE id_ipa = 2");
+    jdbc.update("UPDATE results SET rule_name = 'rule-c' WHERE id_ipa = 3");
+    jdbc.update("UPDATE results SET workflow_id = 'wf-2' WHERE id_ipa = 6");
+    jdbc.update("UPDATE results SET status = 404 WHERE workflow_id = 'wf-3' AND status = 201");
+    jdbc.update("UPDATE results SET status = NULL WHERE id_ipa = 4");
+    assertReconciled();
+
+    // Eliminazione di un risultato e di tutti i risultati di un flusso
+    jdbc.update("DELETE FROM results WHERE id_ipa = 1");
+    jdbc.update("DELETE FROM results WHERE workflow_id = 'wf-3'");
+    assertReconciled();
+    jdbc.queryForObject("SELECT result_status_counts_merge()", Long.class);
+    assertReconciled();
+    Assertions.assertEquals(0,
+        jdbc.queryForObject("SELECT count(*) FROM result_status_counts WHERE workflow_id = 'wf-3'", Long.class));
+  }
+
+  @Test
+  void concurrentInsertsOfTheSameWorkflowDoNotWait() throws SQLException {
+    try (Connection first = dataSource.getConnection(); Connection second = dataSource.getConnection()) {
+      first.setAutoCommit(false);
+      second.setAutoCommit(false);
+      insert(first, 1);
+      // Con l'aggiornamento delle stesse righe dei conteggi il secondo inserimento attenderebbe il primo
+      try (Statement statement = second.createStatement()) {
+        statement.execute("SET LOCAL lock_timeout = '1s'");
+      }
+      insert(second, 2);
+      first.commit();
+      second.commit();
+    }
+    assertReconciled();
+  }
+
+  private static void insert(Connection connection, int idIpa) throws SQLException {
+    try (Statement statement = connection.createStatement()) {
+      statement.executeUpdate("INSERT INTO results (id_ipa, denominazione_ente, workflow_id, rule_name, status) "
+          + "VALUES (" + idIpa + ", 'ente', 'wf-1', 'rule-a', 200)");
+    }
+  }
+
+  private void insert(int idIpa, String workflowId, String ruleName, int status) {
+    jdbc.update("INSERT INTO results (id_ipa, denominazione_ente, workflow_id, rule_name, status) "
+        + "VALUES (?, 'ente', ?, ?, ?)", idIpa, workflowId, ruleName, status);
+  }
+
+  private void assertReconciled() {
+    List<Map<String, Object>> live = jdbc.queryForList(LIVE);
+    Assertions.assertFalse(live.isEmpty());
+    Assertions.assertEquals(live, jdbc.queryForList(COUNTS));
+  }
+}